@@ -0,0 +1,141 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mikrobenchmarks af motorens varme stier på faste åbnings-, midtspils- og slutspilsstillinger,
+ * på begge backends. Kør med: mvn -Pjmh verify (GC-profileren er slået til, så allokering pr. operation vises).
+ * Søgningen måles for sig i {@link SearchBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineBenchmark {
+
+    static final String OPENING = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+    static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String stage;
+
+    @Param({"0x88", "bitboard"})
+    public String backend;
+
+    private Position pos;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private int[] legalMoves;
+    private int[] captures;
+    private final int[] material = new int[2];
+    private final int[] pst = new int[2];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pos = positionFor(stage, backend);
+
+        int count = pos.generateLegalMoves(moves);
+        legalMoves = Arrays.copyOf(moves, count);
+
+        int captureCount = 0;
+        int[] found = new int[count];
+        for (int move : legalMoves) {
+            if (Move.isEnPassant(move) || pos.board[Move.to(move)] != 0) found[captureCount++] = move;
+        }
+        captures = Arrays.copyOf(found, captureCount);
+    }
+
+    static Position positionFor(String stage, String backend) {
+        Position.bitboardBackend = backend.equals("bitboard");
+        return new Position(switch (stage) {
+            case "opening" -> OPENING;
+            case "middlegame" -> MIDDLEGAME;
+            default -> ENDGAME;
+        });
+    }
+
+    @Benchmark
+    public int legalMoveGeneration() {
+        return pos.generateLegalMoves(moves);
+    }
+
+    @Benchmark
+    public long makeUndoAllMoves() {
+        long keys = 0;
+        for (int move : legalMoves) {
+            pos.makeMove(move);
+            keys ^= pos.zobristKey;
+            pos.undoMove(move);
+        }
+        return keys;
+    }
+
+    @Benchmark
+    public int staticEvaluation() {
+        return Evaluation.evaluatePosition(pos);
+    }
+
+    // Materiale + PST som evalueringen læser dem nu (inkrementelle tællere) mod den gamle fulde gennemgang
+    @Benchmark
+    public int materialAndPstIncremental() {
+        return pos.material[0] - pos.material[1] + pos.pieceSquareScore[0] - pos.pieceSquareScore[1];
+    }
+
+    @Benchmark
+    public int materialAndPstRecomputed() {
+        Evaluation.computeMaterialAndPst(pos, material, pst);
+        return material[0] - material[1] + pst[0] - pst[1];
+    }
+
+    @Benchmark
+    public int staticExchangeAllCaptures() {
+        int sum = 0;
+        for (int move : captures) {
+            sum += StaticExchange.see(pos, move);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int staticExchangeThresholdAllCaptures() {
+        int count = 0;
+        for (int move : captures) {
+            if (StaticExchange.seeGreaterOrEqual(pos, move, 0)) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int mateDetection() {
+        return MateDetector.evaluateMateThreats(pos);
+    }
+
+    // Kortet gøres forældet først, som efter et træk; ellers måles kun den cachede vej
+    @Benchmark
+    public void threatDetection(Blackhole bh) {
+        pos.invalidateAttackMap();
+        bh.consume(ThreatDetector.findThreatenedPieces(pos));
+    }
+
+    @Benchmark
+    public long attackMapRebuild() {
+        pos.invalidateAttackMap();
+        return pos.attackMap().attackedBy(true);
+    }
+
+    @Benchmark
+    public long attackMapCached() {
+        return pos.attackMap().attackedBy(true);
+    }
+}
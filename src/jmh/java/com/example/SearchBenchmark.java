@@ -0,0 +1,53 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kold søgning til fast dybde: tom transpositionstabel og tomme ordningstabeller. Dybden kan sættes med -p depth=N.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String stage;
+
+    @Param({"0x88", "bitboard"})
+    public String backend;
+
+    @Param({"2"})
+    public int depth;
+
+    private final TranspositionTable tt = new TranspositionTable(4);
+    private Position pos;
+    private Search search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pos = EngineBenchmark.positionFor(stage, backend);
+    }
+
+    // Hver måling er en kold søgning: tom tabel og en ny Search, så killers, historik og modtræk
+    // fra forrige kørsel ikke gør trækordningen bedre end første gang
+    @Setup(Level.Invocation)
+    public void freshSearch() {
+        tt.clear();
+        search = new Search(pos, tt);
+    }
+
+    @Benchmark
+    public int fixedDepthSearch() {
+        return search.alphaBeta(depth, Integer.MIN_VALUE, Integer.MAX_VALUE, pos.isWhiteTurn);
+    }
+}
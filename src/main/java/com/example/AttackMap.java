@@ -0,0 +1,106 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * Angrebskort for begge farver: hvilke felter hver side angriber, og hvor mange gange.
+ * Kortet hører til en stilling og beregnes ud fra dens bitboards første gang det bruges efter et træk;
+ * putPiece/removePiece markerer det som forældet, så make/undo ikke betaler for det, hvis ingen spørger.
+ * Derefter er "er feltet angrebet?" og "hvor mange forsvarere?" opslag i stedet for gennemgang af brættet.
+ *
+ * Angreb er pseudo-lovlige (bundne brikker angriber stadig), som i {@link Position#isSquareAttacked}.
+ */
+public final class AttackMap {
+
+    private final long[] attacked = new long[2];       // [0] hvid, [1] sort
+    private final byte[] counts = new byte[2 * 64];    // side * 64 + bitboard-felt
+    boolean valid = false;
+
+    /**
+     * Genberegner kortet fra stillingens bitboards.
+     */
+    void compute(Position pos) {
+        long occupancy = pos.whiteOccupancy | pos.blackOccupancy;
+        Arrays.fill(counts, (byte) 0);
+
+        for (int side = 0; side < 2; side++) {
+            int sign = side == 0 ? 1 : -1;
+            long[] bb = pos.bitboards;
+            long all = 0;
+
+            // Bønderne: to forskudte sæt, så hvert angreb tælles én gang pr. bonde
+            long pawns = bb[sign * MoveGenerator.PAWN + 6];
+            long left = side == 0 ? (pawns & ~Bitboards.FILE_A) << 7 : (pawns & ~Bitboards.FILE_A) >>> 9;
+            long right = side == 0 ? (pawns & ~Bitboards.FILE_H) << 9 : (pawns & ~Bitboards.FILE_H) >>> 7;
+            all |= add(side, left) | add(side, right);
+
+            for (int piece = MoveGenerator.KNIGHT; piece <= MoveGenerator.KING; piece++) {
+                for (long b = bb[sign * piece + 6]; b != 0; b &= b - 1) {
+                    int sq = Long.numberOfTrailingZeros(b);
+                    long targets = switch (piece) {
+                        case MoveGenerator.KNIGHT -> Bitboards.KNIGHT_ATTACKS[sq];
+                        case MoveGenerator.BISHOP -> Bitboards.bishopAttacks(sq, occupancy);
+                        case MoveGenerator.ROOK -> Bitboards.rookAttacks(sq, occupancy);
+                        case MoveGenerator.QUEEN -> Bitboards.queenAttacks(sq, occupancy);
+                        default -> Bitboards.KING_ATTACKS[sq];
+                    };
+                    all |= add(side, targets);
+                }
+            }
+            attacked[side] = all;
+        }
+        valid = true;
+    }
+
+    private long add(int side, long targets) {
+        for (long t = targets; t != 0; t &= t - 1) {
+            counts[side * 64 + Long.numberOfTrailingZeros(t)]++;
+        }
+        return targets;
+    }
+
+    /**
+     * @return Bitboard over alle felter den givne farve angriber
+     */
+    public long attackedBy(boolean white) {
+        return attacked[white ? 0 : 1];
+    }
+
+    public boolean isAttacked(int square88, boolean byWhite) {
+        return (attacked[byWhite ? 0 : 1] & (1L << Position.toBitboardSquare(square88))) != 0;
+    }
+
+    /**
+     * @return Antal brikker af den givne farve der angriber feltet
+     */
+    public int count(int square88, boolean byWhite) {
+        return counts[(byWhite ? 0 : 64) + Position.toBitboardSquare(square88)];
+    }
+
+    /**
+     * Alle brikker af begge farver der angriber et bitboard-felt med den givne belægning.
+     * Bruges også af {@link StaticExchange}, som fjerner brikker fra belægningen undervejs.
+     */
+    static long attackersTo(Position pos, int square, long occupancy) {
+        long[] bb = pos.bitboards;
+        long diagonal = bb[MoveGenerator.BISHOP + 6] | bb[-MoveGenerator.BISHOP + 6]
+                | bb[MoveGenerator.QUEEN + 6] | bb[-MoveGenerator.QUEEN + 6];
+        long straight = bb[MoveGenerator.ROOK + 6] | bb[-MoveGenerator.ROOK + 6]
+                | bb[MoveGenerator.QUEEN + 6] | bb[-MoveGenerator.QUEEN + 6];
+
+        return (Bitboards.PAWN_ATTACKS[1][square] & bb[MoveGenerator.PAWN + 6])
+                | (Bitboards.PAWN_ATTACKS[0][square] & bb[-MoveGenerator.PAWN + 6])
+                | (Bitboards.KNIGHT_ATTACKS[square] & (bb[MoveGenerator.KNIGHT + 6] | bb[-MoveGenerator.KNIGHT + 6]))
+                | (Bitboards.KING_ATTACKS[square] & (bb[MoveGenerator.KING + 6] | bb[-MoveGenerator.KING + 6]))
+                | (Bitboards.bishopAttacks(square, occupancy) & diagonal)
+                | (Bitboards.rookAttacks(square, occupancy) & straight);
+    }
+
+    /**
+     * @return Bitboard over de brikker af den givne farve der angriber 0x88-feltet
+     */
+    static long attackersOf(Position pos, int square88, boolean byWhite) {
+        return attackersTo(pos, Position.toBitboardSquare(square88), pos.whiteOccupancy | pos.blackOccupancy)
+                & (byWhite ? pos.whiteOccupancy : pos.blackOccupancy);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example;
+
+/**
+ * Fast søgebenchmark: iterativ uddybning til samme dybde på en række stillinger, hver med ny tabel.
+ * Antallet af knuder er deterministisk, så det kan bruges til at sammenligne ændringer i trækordning
+ * og beskæring; første-træks-cutoff viser hvor ofte det første træk var godt nok.
+ *
+ * Kørsel: java com.example.Bench [dybde]
+ *         java -Dchess.ordering=false com.example.Bench 5    (uden killer/historik/modtræk)
+ *         java -Dchess.lmr=false com.example.Bench 7         (uden LMR; tilsvarende chess.nullMove,
+ *                                                             chess.reverseFutility, chess.futility, chess.checkExtensions)
+ */
+public class Bench {
+
+    static final String[] POSITIONS = {
+            Position.START_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1",
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        long totalNodes = 0;
+        long totalTime = 0;
+        long totalCutoffs = 0;
+        long totalFirst = 0;
+
+        System.out.println("Bench, dybde " + depth + (Search.orderingHeuristics ? "" : " (uden killer/historik)"));
+        for (String fen : POSITIONS) {
+            Position pos = new Position(fen);
+            Search search = new Search(pos, new TranspositionTable(16));
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = pos.generateLegalMoves(moves);
+
+            long start = System.nanoTime();
+            int best = 0;
+            for (int d = 1; d <= depth; d++) {
+                best = search.searchRoot(d, moves, count);
+                LazySmp.moveToFront(moves, count, best);
+            }
+            long time = System.nanoTime() - start;
+
+            totalNodes += search.getNodes();
+            totalTime += time;
+            totalCutoffs += search.getCutoffs();
+            totalFirst += search.getFirstMoveCutoffs();
+            System.out.printf("%-6s %,12d knuder %7d ms  første-træks-cutoff %5.1f%%  %s%n", Move.toUci(best),
+                    search.getNodes(), time / 1_000_000, percent(search.getFirstMoveCutoffs(), search.getCutoffs()), fen);
+        }
+
+        System.out.printf("I alt %,d knuder på %d ms = %,d nps, første-træks-cutoff %.1f%%%n", totalNodes,
+                totalTime / 1_000_000, totalNodes * 1_000_000_000L / Math.max(1, totalTime), percent(totalFirst, totalCutoffs));
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
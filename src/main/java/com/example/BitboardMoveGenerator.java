@@ -0,0 +1,215 @@
+package com.example;
+
+import static com.example.MoveGenerator.*;
+
+/**
+ * Trækgenerering og angrebstjek på stillingens bitboards (-Dchess.backend=bitboard).
+ * Giver præcis de samme pseudo-lovlige træk som {@link MoveGenerator}, kodet med 0x88-felter,
+ * så resten af motoren ikke kan se forskel; perft bruges til at holde de to i takt.
+ */
+public class BitboardMoveGenerator {
+
+    private static final long PROMOTION_RANKS = 0xFF000000000000FFL;
+
+    private static int bb(int piece) {
+        return piece + 6;
+    }
+
+    public static boolean isSquareAttacked(Position pos, int square, boolean byWhite) {
+        int sq = Position.toBitboardSquare(square);
+        int sign = byWhite ? 1 : -1;
+        long[] bitboards = pos.bitboards;
+        long occupancy = pos.whiteOccupancy | pos.blackOccupancy;
+
+        // En bonde angriber sq, hvis en bonde af modsat farve på sq ville angribe bondens felt
+        if ((Bitboards.PAWN_ATTACKS[byWhite ? 1 : 0][sq] & bitboards[bb(sign * PAWN)]) != 0) return true;
+        if ((Bitboards.KNIGHT_ATTACKS[sq] & bitboards[bb(sign * KNIGHT)]) != 0) return true;
+        if ((Bitboards.KING_ATTACKS[sq] & bitboards[bb(sign * KING)]) != 0) return true;
+
+        long queens = bitboards[bb(sign * QUEEN)];
+        if ((Bitboards.bishopAttacks(sq, occupancy) & (bitboards[bb(sign * BISHOP)] | queens)) != 0) return true;
+        return (Bitboards.rookAttacks(sq, occupancy) & (bitboards[bb(sign * ROOK)] | queens)) != 0;
+    }
+
+    // Generate all pseudo-legal moves for the side to move into the buffer; returns the number of moves
+    public static int generateAllMoves(Position pos, int[] moves) {
+        return generateAllMoves(pos, moves, pos.isCurrentPlayerInCheck());
+    }
+
+    public static int generateAllMoves(Position pos, int[] moves, boolean inCheck) {
+        return generateMoves(pos, moves, 0, inCheck, GEN_ALL);
+    }
+
+    // Som MoveGenerator.generateMoves: kun trækkene af den givne slags, skrevet ind fra plads start
+    public static int generateMoves(Position pos, int[] moves, int start, boolean inCheck, int kind) {
+        boolean white = pos.isWhiteTurn;
+        int sign = white ? 1 : -1;
+        long[] bitboards = pos.bitboards;
+        long own = white ? pos.whiteOccupancy : pos.blackOccupancy;
+        long enemy = white ? pos.blackOccupancy : pos.whiteOccupancy;
+        long occupancy = own | enemy;
+        long targets = targets(kind, own, occupancy);
+        int count = start;
+
+        count = generatePawnMoves(pos, moves, count, white, enemy, occupancy, kind);
+
+        for (long knights = bitboards[bb(sign * KNIGHT)]; knights != 0; knights &= knights - 1) {
+            int from = Long.numberOfTrailingZeros(knights);
+            count = addMoves(moves, count, from, Bitboards.KNIGHT_ATTACKS[from] & targets);
+        }
+        for (long bishops = bitboards[bb(sign * BISHOP)]; bishops != 0; bishops &= bishops - 1) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            count = addMoves(moves, count, from, Bitboards.bishopAttacks(from, occupancy) & targets);
+        }
+        for (long rooks = bitboards[bb(sign * ROOK)]; rooks != 0; rooks &= rooks - 1) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            count = addMoves(moves, count, from, Bitboards.rookAttacks(from, occupancy) & targets);
+        }
+        for (long queens = bitboards[bb(sign * QUEEN)]; queens != 0; queens &= queens - 1) {
+            int from = Long.numberOfTrailingZeros(queens);
+            count = addMoves(moves, count, from, Bitboards.queenAttacks(from, occupancy) & targets);
+        }
+
+        return generateKingMoves(pos, moves, count, white, inCheck, kind);
+    }
+
+    public static int generateKingMoves(Position pos, int[] moves, int count, boolean white, boolean inCheck) {
+        return generateKingMoves(pos, moves, count, white, inCheck, GEN_ALL);
+    }
+
+    public static int generateKingMoves(Position pos, int[] moves, int count, boolean white, boolean inCheck, int kind) {
+        long king = pos.bitboards[bb(white ? KING : -KING)];
+        if (king == 0) return count;
+
+        long own = white ? pos.whiteOccupancy : pos.blackOccupancy;
+        int from = Long.numberOfTrailingZeros(king);
+        count = addMoves(moves, count, from, Bitboards.KING_ATTACKS[from] & targets(kind, own, pos.whiteOccupancy | pos.blackOccupancy));
+        if (inCheck || kind == GEN_TACTICAL) return count;
+        return generateCastleMoves(pos, moves, count, Position.toBoardSquare(from), white);
+    }
+
+    // Mulige destinationer for brikker (ikke bønder): fjendtlige felter for slag, tomme for stille træk
+    private static long targets(int kind, long own, long occupancy) {
+        return switch (kind) {
+            case GEN_TACTICAL -> occupancy & ~own;
+            case GEN_QUIET -> ~occupancy;
+            default -> ~own;
+        };
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets) {
+        int from88 = Position.toBoardSquare(from);
+        for (; targets != 0; targets &= targets - 1) {
+            moves[count++] = Move.encode(from88, Position.toBoardSquare(Long.numberOfTrailingZeros(targets)), 0, 0);
+        }
+        return count;
+    }
+
+    // Forvandlinger er taktiske, også uden slag; øvrige fremtræk er stille
+    private static int generatePawnMoves(Position pos, int[] moves, int count, boolean white, long enemy, long occupancy, int kind) {
+        long pawns = pos.bitboards[bb(white ? PAWN : -PAWN)];
+        long empty = ~occupancy;
+
+        // Enkelt- og dobbelttræk som hele sæt; 'back' er afstanden tilbage til udgangsfeltet
+        long single = (white ? pawns << 8 : pawns >>> 8) & empty;
+        long doubles = white ? ((single & 0xFF0000L) << 8) & empty : ((single & 0xFF0000000000L) >>> 8) & empty;
+        int back = white ? -8 : 8;
+
+        if (kind == GEN_TACTICAL) {
+            single &= PROMOTION_RANKS;
+            doubles = 0;
+        } else if (kind == GEN_QUIET) {
+            single &= ~PROMOTION_RANKS;
+        }
+        count = addPawnTargets(moves, count, single, back);
+        count = addPawnTargets(moves, count, doubles, 2 * back);
+        if (kind == GEN_QUIET) return count;
+
+        // Slag mod venstre og højre; kanten maskeres så der ikke "wrappes" rundt om brættet
+        long left = white ? (pawns & ~Bitboards.FILE_A) << 7 : (pawns & ~Bitboards.FILE_A) >>> 9;
+        long right = white ? (pawns & ~Bitboards.FILE_H) << 9 : (pawns & ~Bitboards.FILE_H) >>> 7;
+        int leftBack = white ? -7 : 9;
+        int rightBack = white ? -9 : 7;
+        count = addPawnTargets(moves, count, left & enemy, leftBack);
+        count = addPawnTargets(moves, count, right & enemy, rightBack);
+
+        if (pos.enPassantSquare != -1) {
+            int ep = Position.toBitboardSquare(pos.enPassantSquare);
+            long attackers = Bitboards.PAWN_ATTACKS[white ? 1 : 0][ep] & pawns;
+            for (; attackers != 0; attackers &= attackers - 1) {
+                int from = Long.numberOfTrailingZeros(attackers);
+                moves[count++] = Move.encode(Position.toBoardSquare(from), pos.enPassantSquare, 0, Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    // Tilføjer bondetræk til alle felter i targets; på sidste række ét træk pr. forvandlingsbrik
+    private static int addPawnTargets(int[] moves, int count, long targets, int back) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int from88 = Position.toBoardSquare(to + back);
+            int to88 = Position.toBoardSquare(to);
+            if (to >= 56 || to < 8) {
+                for (int piece : PROMOTION_PIECES) {
+                    moves[count++] = Move.encode(from88, to88, piece, 0);
+                }
+            } else {
+                moves[count++] = Move.encode(from88, to88, 0, 0);
+            }
+        }
+        return count;
+    }
+
+    // Samme regler som 0x88-generatoren; angrebstjekket går gennem bitboards via pos.isSquareAttacked
+    private static int generateCastleMoves(Position pos, int[] moves, int count, int from, boolean white) {
+        int rights = pos.castlingRights & (white
+                ? Position.WHITE_KINGSIDE | Position.WHITE_QUEENSIDE
+                : Position.BLACK_KINGSIDE | Position.BLACK_QUEENSIDE);
+        if (rights == 0) return count;
+
+        if (white) {
+            if (pos.canCastle(Position.WHITE_KINGSIDE))  count = tryAddCastleMove(pos, moves, count, from, 6, true, true);
+            if (pos.canCastle(Position.WHITE_QUEENSIDE)) count = tryAddCastleMove(pos, moves, count, from, 2, true, false);
+        } else {
+            if (pos.canCastle(Position.BLACK_KINGSIDE))  count = tryAddCastleMove(pos, moves, count, from, 118, false, true);
+            if (pos.canCastle(Position.BLACK_QUEENSIDE)) count = tryAddCastleMove(pos, moves, count, from, 114, false, false);
+        }
+        return count;
+    }
+
+    /**
+     * Som {@link MoveGenerator#computeCheckInfo}, men med bitboards: skakgivere slås op fra kongens felt,
+     * og bindinger findes ud fra de fjendtlige langtrækkende brikker der ser kongen på et tomt bræt.
+     */
+    static void computeCheckInfo(Position pos, int kingSquare, boolean white) {
+        int king = Position.toBitboardSquare(kingSquare);
+        int enemy = white ? -1 : 1;
+        long[] bitboards = pos.bitboards;
+        long own = white ? pos.whiteOccupancy : pos.blackOccupancy;
+        long occupancy = pos.whiteOccupancy | pos.blackOccupancy;
+        long queens = bitboards[bb(enemy * QUEEN)];
+
+        long checkers = (Bitboards.PAWN_ATTACKS[white ? 0 : 1][king] & bitboards[bb(enemy * PAWN)])
+                | (Bitboards.KNIGHT_ATTACKS[king] & bitboards[bb(enemy * KNIGHT)]);
+        long snipers = (Bitboards.rookAttacks(king, 0L) & (bitboards[bb(enemy * ROOK)] | queens))
+                | (Bitboards.bishopAttacks(king, 0L) & (bitboards[bb(enemy * BISHOP)] | queens));
+
+        long pinned = 0L;
+        long checkMask = checkers;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            long between = Bitboards.BETWEEN[king][sniper] & occupancy;
+            if (between == 0) {
+                checkers |= 1L << sniper;
+                checkMask |= Bitboards.BETWEEN[king][sniper] | (1L << sniper);
+            } else if ((between & (between - 1)) == 0 && (between & own) != 0) {
+                pinned |= between;
+            }
+        }
+
+        pos.checkers = Long.bitCount(checkers);
+        pos.checkMask = checkers == 0 ? -1L : checkMask;
+        pos.pinned = pinned;
+    }
+}
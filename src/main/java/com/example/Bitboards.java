@@ -0,0 +1,258 @@
+package com.example;
+
+/**
+ * Forudberegnede angrebstabeller til bitboard-backenden.
+ * Springer, konge og bønder slås op direkte; løber og tårn via magic bitboards,
+ * eller via PEXT ({@link Long#compress}) hvis -Dchess.pext=true.
+ *
+ * Felter er bitboard-felter: rank * 8 + file (a1 = 0, h8 = 63).
+ */
+public class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+
+    /**
+     * PEXT-indeksering i stedet for magics. Long.compress er en intrinsic på CPU'er med BMI2.
+     */
+    public static final boolean USE_PEXT = Boolean.getBoolean("chess.pext");
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    // [0] = hvide bønders angreb, [1] = sorte bønders angreb
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // Felterne strengt mellem to felter på samme linje/diagonal (ellers 0)
+    static final long[][] BETWEEN = new long[64][64];
+    // Hele linjen/diagonalen gennem to felter, inkl. felterne selv (ellers 0)
+    static final long[][] LINE = new long[64][64];
+
+    private static final int[][] ROOK_DELTAS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DELTAS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    // Magics fundet med findMagic og gemt her, så opstarten ikke skal søge (det tager over et sekund)
+    private static final long[] STORED_ROOK_MAGICS = {
+            0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+            0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+            0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+            0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+            0x0080860021004200L, 0x001000C009402002L, 0x00B0002004002800L, 0x100A808010020800L,
+            0x8101010008000410L, 0x0244008002000480L, 0x0000040010810208L, 0x2000020000448534L,
+            0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x4600240900100100L,
+            0x0060080080040080L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+            0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x1000200901001000L,
+            0x4410800801800C00L, 0xA012003806001004L, 0x0020100104008802L, 0x0004808402000041L,
+            0x0010400170898000L, 0x0080500020004004L, 0x1040408012020020L, 0x8010040008004040L,
+            0x2001080100110004L, 0x0000020004008080L, 0x0021010810040002L, 0x0800008C43020024L,
+            0x0000800021005100L, 0x0070201040008080L, 0x0000D04282006A00L, 0x0010014400080240L,
+            0x0001080110050100L, 0x0012000810240600L, 0x0402000801040200L, 0x028100108A004100L,
+            0x0050800300102045L, 0x8208210040120882L, 0x8010600101183441L, 0x020B000910006045L,
+            0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L
+    };
+
+    private static final long[] STORED_BISHOP_MAGICS = {
+            0x0848020822040013L, 0x8010A40085821200L, 0x0008008430840822L, 0x0808048108040000L,
+            0x1304042100008104L, 0x5001012010204023L, 0x81048801B8200420L, 0x200A008084012000L,
+            0x0040102001042084L, 0x840A505042428020L, 0x0000700102202920L, 0x44101C0C10800002L,
+            0x0040040422000000L, 0x0180020802090202L, 0x4020020811041202L, 0x000104308C042000L,
+            0x4140661002424400L, 0x0028012008010460L, 0x0188062102002A00L, 0x0014004840102008L,
+            0x0105000290400002L, 0x8001022200410400L, 0x104A041918013446L, 0x008A000082008238L,
+            0x04A0060008100430L, 0x0008220008820801L, 0x2508041208005010L, 0x4008080200202020L,
+            0x2441001013004000L, 0x0030008060407000L, 0x4008108000420800L, 0x0012021050290100L,
+            0x0210080482200500L, 0xCC01112048100480L, 0x0020402806500440L, 0x00048E0080580080L,
+            0x0040102020020080L, 0x0028010440080807L, 0x4601041108008800L, 0x8040810E04104200L,
+            0x901210110400088AL, 0xA003080212081050L, 0x00C1004048401004L, 0x900000A014400800L,
+            0x0008021040405401L, 0x4020008206002090L, 0x0004190424030100L, 0x0424008A02026250L,
+            0x8004088250900040L, 0x1C00430088A04200L, 0x0001020094040001L, 0x8040210020880061L,
+            0x2010040450442032L, 0x0800840850044001L, 0x0004040802140004L, 0x0004080A04222020L,
+            0x8088802110022000L, 0x1081A10416114400L, 0x0205010A24060820L, 0x0000000720411080L,
+            0x1008000208430400L, 0x580C026028810840L, 0x802020441020A110L, 0x12C0022401020018L
+    };
+
+    // Fast seed, så en eventuel ny søgning giver samme magics fra kørsel til kørsel
+    private static long seed = 0x9E3779B97F4A7C15L;
+
+    static {
+        int[][] knightDeltas = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] kingDeltas = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT_ATTACKS[sq] = stepAttacks(sq, knightDeltas);
+            KING_ATTACKS[sq] = stepAttacks(sq, kingDeltas);
+            PAWN_ATTACKS[0][sq] = stepAttacks(sq, new int[][]{{-1, 1}, {1, 1}});
+            PAWN_ATTACKS[1][sq] = stepAttacks(sq, new int[][]{{-1, -1}, {1, -1}});
+        }
+
+        for (int sq = 0; sq < 64; sq++) {
+            for (int[] d : kingDeltas) {
+                long ray = slidingAttacks(sq, 0L, new int[][]{d});
+                long line = ray | slidingAttacks(sq, 0L, new int[][]{{-d[0], -d[1]}}) | (1L << sq);
+                long between = 0L;
+                int f = (sq & 7) + d[0];
+                int r = (sq >> 3) + d[1];
+                while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+                    int to = r * 8 + f;
+                    BETWEEN[sq][to] = between;
+                    LINE[sq][to] = line;
+                    between |= 1L << to;
+                    f += d[0];
+                    r += d[1];
+                }
+            }
+        }
+
+        ROOK_TABLE = initSlider(ROOK_DELTAS, STORED_ROOK_MAGICS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET);
+        BISHOP_TABLE = initSlider(BISHOP_DELTAS, STORED_BISHOP_MAGICS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET);
+    }
+
+    public static long rookAttacks(int square, long occupancy) {
+        long relevant = occupancy & ROOK_MASK[square];
+        int index = USE_PEXT
+                ? (int) Long.compress(relevant, ROOK_MASK[square])
+                : (int) ((relevant * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square]);
+        return ROOK_TABLE[ROOK_OFFSET[square] + index];
+    }
+
+    public static long bishopAttacks(int square, long occupancy) {
+        long relevant = occupancy & BISHOP_MASK[square];
+        int index = USE_PEXT
+                ? (int) Long.compress(relevant, BISHOP_MASK[square])
+                : (int) ((relevant * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square]);
+        return BISHOP_TABLE[BISHOP_OFFSET[square] + index];
+    }
+
+    public static long queenAttacks(int square, long occupancy) {
+        return rookAttacks(square, occupancy) | bishopAttacks(square, occupancy);
+    }
+
+    // Alle felter som et sæt bønder af den givne farve angriber
+    public static long pawnAttacks(long pawns, boolean white) {
+        return white
+                ? ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9)
+                : ((pawns & ~FILE_A) >>> 9) | ((pawns & ~FILE_H) >>> 7);
+    }
+
+    private static long stepAttacks(int square, int[][] deltas) {
+        long attacks = 0L;
+        int file = square & 7;
+        int rank = square >> 3;
+        for (int[] d : deltas) {
+            int f = file + d[0];
+            int r = rank + d[1];
+            if (f >= 0 && f < 8 && r >= 0 && r < 8) attacks |= 1L << (r * 8 + f);
+        }
+        return attacks;
+    }
+
+    // Langsom stråle-gennemgang; bruges kun til at bygge tabellerne
+    private static long slidingAttacks(int square, long occupancy, int[][] deltas) {
+        long attacks = 0L;
+        for (int[] d : deltas) {
+            int f = (square & 7) + d[0];
+            int r = (square >> 3) + d[1];
+            while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+                long bit = 1L << (r * 8 + f);
+                attacks |= bit;
+                if ((occupancy & bit) != 0) break;
+                f += d[0];
+                r += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    // De felter hvis belægning har betydning: strålerne uden kantfeltet
+    private static long relevantMask(int square, int[][] deltas) {
+        long mask = 0L;
+        for (int[] d : deltas) {
+            int f = (square & 7) + d[0];
+            int r = (square >> 3) + d[1];
+            while (f + d[0] >= 0 && f + d[0] < 8 && r + d[1] >= 0 && r + d[1] < 8) {
+                mask |= 1L << (r * 8 + f);
+                f += d[0];
+                r += d[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] initSlider(int[][] deltas, long[] stored, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        int total = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            masks[sq] = relevantMask(sq, deltas);
+            offsets[sq] = total;
+            total += 1 << Long.bitCount(masks[sq]);
+        }
+
+        long[] table = new long[total];
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = masks[sq];
+            int bits = Long.bitCount(mask);
+            int size = 1 << bits;
+            shifts[sq] = 64 - bits;
+
+            // Alle delmængder af masken (carry-rippler) og deres angreb
+            long[] occupancies = new long[size];
+            long[] attacks = new long[size];
+            long subset = 0L;
+            for (int i = 0; i < size; i++) {
+                occupancies[i] = subset;
+                attacks[i] = slidingAttacks(sq, subset, deltas);
+                subset = (subset - mask) & mask;
+            }
+
+            if (USE_PEXT) {
+                for (int i = 0; i < size; i++) {
+                    table[offsets[sq] + (int) Long.compress(occupancies[i], mask)] = attacks[i];
+                }
+            } else if (fillTable(stored[sq], shifts[sq], occupancies, attacks, table, offsets[sq])) {
+                magics[sq] = stored[sq];
+            } else {
+                magics[sq] = findMagic(mask, shifts[sq], occupancies, attacks, table, offsets[sq]);
+            }
+        }
+        return table;
+    }
+
+    private static long findMagic(long mask, int shift, long[] occupancies, long[] attacks, long[] table, int offset) {
+        while (true) {
+            long magic = nextRandom() & nextRandom() & nextRandom();
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) continue;
+            if (fillTable(magic, shift, occupancies, attacks, table, offset)) return magic;
+        }
+    }
+
+    // Udfylder feltets del af tabellen; false hvis to belægninger med forskellige angreb kolliderer
+    private static boolean fillTable(long magic, int shift, long[] occupancies, long[] attacks, long[] table, int offset) {
+        int size = occupancies.length;
+        java.util.Arrays.fill(table, offset, offset + size, 0L);
+        for (int i = 0; i < size; i++) {
+            int index = offset + (int) ((occupancies[i] * magic) >>> shift);
+            if (table[index] == 0L) {
+                table[index] = attacks[i];
+            } else if (table[index] != attacks[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long nextRandom() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return seed;
+    }
+}
@@ -92,7 +92,7 @@ public class ChessGUI extends JFrame {
             threatenedSquares.clear();
             drawBoard();
 
-            if (Game.isWhiteTurn != playerIsWhite) {
+            if (Game.isWhiteTurn() != playerIsWhite) {
                 Move aiMove = AI.findBestMove(6);
                 if (aiMove != null) {
                     Game.makeMove(aiMove);
@@ -110,7 +110,7 @@ public class ChessGUI extends JFrame {
             lastMoveTo = -1;
             threatenedSquares.clear();
 
-            if (Game.isWhiteTurn != playerIsWhite) {
+            if (Game.isWhiteTurn() != playerIsWhite) {
                 Move aiMove = AI.findBestMove(6);
                 if (aiMove != null) {
                     Game.makeMove(aiMove);
@@ -122,13 +122,13 @@ public class ChessGUI extends JFrame {
 
         buttonPanel.add(makeButton("Truede", () -> {
             threatenedSquares.clear();
-            int[][] threats = ThreatDetector.findThreatenedPieces();
+            int[][] threats = ThreatDetector.findThreatenedPieces(Game.position);
             for (int[] t : threats) threatenedSquares.add(t[0]);
             drawBoard();
         }, buttonFont));
 
         buttonPanel.add(makeButton("Evaluering", () -> {
-            int score = Evaluation.evaluatePosition(true);
+            int score = Evaluation.evaluatePosition(Game.position, true);
             JOptionPane.showMessageDialog(this, "Evaluering: " + score);
         }, buttonFont));
     }
@@ -225,23 +225,23 @@ public class ChessGUI extends JFrame {
         int piece = Game.board[square];
 
         if (selectedSquare == -1) {
-            if ((Game.isWhiteTurn && playerIsWhite && piece > 0) ||
-                    (!Game.isWhiteTurn && !playerIsWhite && piece < 0)) {
+            if ((Game.isWhiteTurn() && playerIsWhite && piece > 0) ||
+                    (!Game.isWhiteTurn() && !playerIsWhite && piece < 0)) {
                 selectedSquare = square;
             }
         } else {
             List<Move> legalMoves = Game.generateLegalMoves();
             for (Move move : legalMoves) {
                 if (move.from == selectedSquare && move.to == square) {
+                    move = choosePromotion(move);
                     Game.makeMove(move);
-                    handlePromotionIfNeeded(move);
                     lastMoveTo = move.to;
                     selectedSquare = -1;
                     threatenedSquares.clear();
                     drawBoard();
                     checkEnd();
 
-                    if (Game.isWhiteTurn != playerIsWhite) {
+                    if (Game.isWhiteTurn() != playerIsWhite) {
                         new Thread(() -> {
                             try {
                                 Thread.sleep(100); // kort forsinkelse for visning
@@ -251,7 +251,6 @@ public class ChessGUI extends JFrame {
                             Move aiMove = AI.findBestMove(6);
                             if (aiMove != null) {
                                 Game.makeMove(aiMove);
-                                handlePromotionIfNeeded(aiMove);
                                 lastMoveTo = aiMove.to;
 
                                 SwingUtilities.invokeLater(() -> {
@@ -271,33 +270,28 @@ public class ChessGUI extends JFrame {
         drawBoard();
     }
 
-    void handlePromotionIfNeeded(Move move) {
-        if (move.promotionPiece != 0) return;
+    // Lader spilleren vælge forvandlingsbrik, før trækket udføres (så stillingens nøgle forbliver korrekt)
+    Move choosePromotion(Move move) {
+        if (move.promotionPiece == 0) return move;
 
-        int piece = Game.board[move.to];
-        boolean isPawn = Math.abs(piece) == MoveGenerator.PAWN;
-        int rank = move.to / 16;
+        String[] options = {"Dronning", "Tårn", "Løber", "Springer"};
+        int choice = JOptionPane.showOptionDialog(this, "Vælg forfremmelse:", "Bondeforfremmelse",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
 
-        if (isPawn && (rank == 0 || rank == 7)) {
-            String[] options = {"Dronning", "Tårn", "Løber", "Springer"};
-            int choice = JOptionPane.showOptionDialog(this, "Vælg forfremmelse:", "Bondeforfremmelse",
-                    JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
-
-            int newPiece = switch (choice) {
-                case 1 -> MoveGenerator.ROOK;
-                case 2 -> MoveGenerator.BISHOP;
-                case 3 -> MoveGenerator.KNIGHT;
-                default -> MoveGenerator.QUEEN;
-            };
+        int newPiece = switch (choice) {
+            case 1 -> MoveGenerator.ROOK;
+            case 2 -> MoveGenerator.BISHOP;
+            case 3 -> MoveGenerator.KNIGHT;
+            default -> MoveGenerator.QUEEN;
+        };
 
-            Game.board[move.to] = (piece > 0 ? newPiece : -newPiece);
-        }
+        return new Move(move.from, move.to, newPiece);
     }
 
     void checkEnd() {
         List<Move> moves = Game.generateLegalMoves();
         if (moves.isEmpty()) {
-            String winner = Game.isWhiteTurn ? "Sort" : "Hvid";
+            String winner = Game.isWhiteTurn() ? "Sort" : "Hvid";
             if (Game.isCurrentPlayerInCheck()) {
                 JOptionPane.showMessageDialog(this, winner + " vinder! Mat.");
             } else if (Game.isDrawByStalemate()) {
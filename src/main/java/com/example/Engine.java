@@ -0,0 +1,177 @@
+package com.example;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Programmatisk adgang til motoren for tjenester der indlejrer den: en søgning startes med
+ * {@link #search(Position, SearchLimits, SearchListener)} og giver en {@link CompletableFuture} med
+ * bedste træk, score, hovedvariation, dybde, knuder og tid - intet skrives til konsollen.
+ *
+ * Søgningerne kører på en fast pulje af søgetråde, så flere stillinger kan søges samtidig; hver søgning
+ * kan selv bruge Lazy SMP-hjælpere, og alle deler transpositionstabellen.
+ * {@link #stop()} afslutter de igangværende søgninger med det bedste træk indtil nu, mens
+ * {@code future.cancel(...)} stopper én søgning og kasserer resultatet.
+ */
+public class Engine implements AutoCloseable {
+
+    private final TranspositionTable tt;
+    private final int threads;
+    private final ExecutorService pool;
+    private final Set<TimeManager> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param hashMegabytes Størrelse på den delte transpositionstabel
+     * @param threads Søgetråde pr. søgning inkl. hovedtråden (Lazy SMP)
+     * @param concurrentSearches Antal søgninger der kan køre samtidig; flere stilles i kø
+     */
+    public Engine(int hashMegabytes, int threads, int concurrentSearches) {
+        if (concurrentSearches < 1) throw new IllegalArgumentException("concurrentSearches must be at least 1");
+        this.tt = new TranspositionTable(hashMegabytes);
+        this.threads = Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(concurrentSearches,
+                Thread.ofPlatform().daemon().name("engine-search-", 0).factory());
+    }
+
+    public Engine() {
+        this(64, 1, 1);
+    }
+
+    public CompletableFuture<SearchResult> search(Position position, SearchLimits limits) {
+        return search(position, limits, null);
+    }
+
+    /**
+     * Starter en søgning på en kopi af stillingen, så kalderen frit kan ændre sin egen bagefter.
+     *
+     * @param listener Får status efter hver færdig iteration, eller null
+     */
+    public CompletableFuture<SearchResult> search(Position position, SearchLimits limits, SearchListener listener) {
+        Position root = new Position(position);
+        TimeManager timeManager = limits.createTimeManager(root.isWhiteTurn);
+        running.add(timeManager);
+
+        CompletableFuture<SearchResult> future = CompletableFuture.supplyAsync(() -> {
+            // Tiden tæller fra søgetråden tager fat, ikke mens søgningen venter i kø
+            timeManager.restartClock();
+            // Samtidige søgninger deler én generation i tabellen, så de ikke ælder hinandens indgange
+            if (active.getAndIncrement() == 0) tt.newSearch();
+            try {
+                return iterativeDeepening(root, limits, timeManager, tt, threads, listener);
+            } finally {
+                active.decrementAndGet();
+            }
+        }, pool);
+        // Også ved cancel: søgetråden stoppes og frigives
+        future.whenComplete((result, error) -> {
+            timeManager.stop();
+            running.remove(timeManager);
+        });
+        return future;
+    }
+
+    /**
+     * Stopper alle igangværende søgninger; deres futures fuldføres med det bedste træk indtil nu.
+     */
+    public void stop() {
+        for (TimeManager timeManager : running) timeManager.stop();
+    }
+
+    /**
+     * Modstanderen spillede det ventede træk: pondering-søgninger går over til deres almindelige tidsgrænser.
+     */
+    public void ponderHit() {
+        for (TimeManager timeManager : running) timeManager.ponderHit();
+    }
+
+    /**
+     * Tømmer transpositionstabellen, fx ved et nyt parti. Bør ikke kaldes midt i en søgning.
+     */
+    public void clear() {
+        tt.clear();
+    }
+
+    public int hashfull() {
+        return tt.hashfull();
+    }
+
+    public int getHashSizeInMegabytes() {
+        return tt.getSizeInMegabytes();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Stopper igangværende søgninger og lukker søgetrådene.
+     */
+    @Override
+    public void close() {
+        stop();
+        pool.shutdown();
+    }
+
+    /**
+     * Iterativ uddybning over {@link Search#searchRoot} med Lazy SMP-hjælpere; den eneste rodsøgning i motoren,
+     * som både facaden og {@link AI} bruger. En iteration der afbrydes af stop eller tidsgrænsen, kasseres;
+     * blev ingen iteration færdig, er resultatet første lovlige træk. Stillingen er uændret bagefter.
+     * Kalderen bestemmer hvornår tabellen skal have en ny generation ({@link TranspositionTable#newSearch()}).
+     */
+    static SearchResult iterativeDeepening(Position root, SearchLimits limits, TimeManager timeManager,
+                                           TranspositionTable tt, int threads, SearchListener listener) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = root.generateLegalMoves(moves);
+        if (count == 0) {
+            int score = root.isCurrentPlayerInCheck() ? -Search.MATE_SCORE : 0;
+            return new SearchResult(0, score, 0, 0, timeManager.elapsedMillis(), new int[0]);
+        }
+
+        Search search = new Search(root, tt);
+        search.setTimeManager(timeManager);
+
+        LazySmp smp = new LazySmp(tt, threads);
+        smp.startHelpers(root, limits.getDepth(), timeManager);
+        int best = moves[0];
+        int score = 0;
+        int completed = 0;
+        int[] pv = new int[0];
+        long helperNodes = 0;
+        try {
+            for (int depth = 1; depth <= limits.getDepth(); depth++) {
+                if (depth > 1 && !timeManager.canStartIteration()) break;
+                int move = search.searchRoot(depth, moves, count);
+                if (move == 0) break; // afbrudt
+
+                best = move;
+                score = root.isWhiteTurn ? search.getRootScore() : -search.getRootScore();
+                completed = depth;
+                pv = search.getPrincipalVariation();
+                LazySmp.moveToFront(moves, count, move);
+                timeManager.iterationComplete(move);
+                if (listener != null) {
+                    listener.onIteration(new SearchResult(best, score, depth, search.getNodes(), timeManager.elapsedMillis(), pv));
+                }
+
+                // En mat der er set helt til bunds, bliver ikke bedre af dybere søgning
+                if (!limits.isInfinite() && Math.abs(score) > Search.MATE_BOUND
+                        && depth >= Search.MATE_SCORE - Math.abs(score)) break;
+            }
+
+            // Uendelig søgning afleveres først ved stop, pondering tidligst ved ponderhit
+            timeManager.awaitStop(limits.isInfinite());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            timeManager.stop();
+            helperNodes = smp.stopHelpers();
+        }
+
+        return new SearchResult(best, score, completed, search.getNodes() + helperNodes, timeManager.elapsedMillis(), pv);
+    }
+}
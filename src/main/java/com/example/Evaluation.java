@@ -1,12 +1,30 @@
 package com.example;
 
-import com.example.Game;
-import com.example.MoveGenerator;
+public class Evaluation {
 
-import java.util.ArrayList;
-import java.util.List;
+    /**
+     * Hvordan mobilitet beregnes (-Dchess.mobility=legal|attacks|safe):
+     * LEGAL tæller lovlige træk for begge sider (den oprindelige, dyre metode),
+     * ATTACKS tæller de felter hver let/tung brik angriber og ikke selv står på,
+     * SAFE som ATTACKS, men uden felter modstanderens bønder angriber.
+     */
+    public static final int MOBILITY_LEGAL = 0;
+    public static final int MOBILITY_ATTACKS = 1;
+    public static final int MOBILITY_SAFE = 2;
+    public static int mobilityMode = parseMobilityMode(System.getProperty("chess.mobility", "safe"));
+
+    // Point pr. felt for springer, løber, tårn og dronning (indeks = briktype)
+    private static final int[] MOBILITY_WEIGHT = { 0, 0, 4, 4, 2, 1, 0 };
+
+    public static int parseMobilityMode(String name) {
+        return switch (name.toLowerCase()) {
+            case "legal" -> MOBILITY_LEGAL;
+            case "attacks" -> MOBILITY_ATTACKS;
+            case "safe" -> MOBILITY_SAFE;
+            default -> throw new IllegalArgumentException("Unknown mobility mode: " + name);
+        };
+    }
 
-public class Evaluation {
     static final int[] pawnPST = {
             0,  5,  5, -10, -10,  5,  5,  0,
             0, 10, 10,   0,   0, 10, 10,  0,
@@ -74,98 +92,124 @@ public class Evaluation {
         return isWhite ? ((7 - rank) * 8 + file) : (rank * 8 + file);
     }
 
-    public static int evaluatePosition() {
-        return evaluatePosition(false);
-    }
-
-    public static int evaluatePosition(boolean verbose) {
-        int materialScore = 0;
-        int positionScore = 0;
-        int safetyScore = 0;
-        int mateScore = 0;
+    // PST-bonus for brik på felt set fra brikkens egen side, indekseret (brik + 6) * 128 + felt
+    private static final int[] pieceSquare = new int[13 * 128];
+    // Brikværdi uden fortegn, indekseret brik + 6
+    private static final int[] absoluteValue = new int[13];
 
-        // *** KRITISK: TJEK FOR MAT FØRST ***
-        mateScore = MateDetector.evaluateMateThreats();
+    static {
+        for (int piece = -6; piece <= 6; piece++) absoluteValue[piece + 6] = Math.abs(getPieceValue(piece));
 
-        // Hvis der er en mat-trussel, er andre faktorer mindre vigtige
-        if (Math.abs(mateScore) >= 500_000) {
-            if (verbose) {
-                System.out.println("Position Evaluation:");
-                System.out.println(" - Material: " + materialScore);
-                System.out.println(" - Position: " + positionScore);
-                System.out.println(" - Safety: " + safetyScore);
-                System.out.println(" - MATE THREAT: " + mateScore);
-                System.out.println(" = Total: " + mateScore);
+        int[][] tables = { null, pawnPST, knightPST, bishopPST, rookPST, queenPST, kingPST };
+        for (int piece = -6; piece <= 6; piece++) {
+            if (piece == 0) continue;
+            for (int sq = 0; sq < 128; sq++) {
+                if ((sq & 0x88) != 0) continue;
+                pieceSquare[(piece + 6) * 128 + sq] = tables[Math.abs(piece)][pstIndex(sq, piece > 0)];
             }
-            return mateScore;
         }
+    }
+
+    static int pieceSquareValue(int piece, int square) {
+        return pieceSquare[(piece + 6) * 128 + square];
+    }
+
+    static int pieceValue(int piece) {
+        return absoluteValue[piece + 6];
+    }
 
+    /**
+     * Beregner materiale og piece-square-sum pr. side helt forfra ([0] = hvid, [1] = sort).
+     * Bruges til at kontrollere stillingens inkrementelle tællere og som sammenligning i benchmarks.
+     */
+    static void computeMaterialAndPst(Position pos, int[] material, int[] pst) {
+        material[0] = material[1] = 0;
+        pst[0] = pst[1] = 0;
         for (int i = 0; i < 128; i++) {
             if ((i & 0x88) != 0) continue;
-
-            int piece = Game.board[i];
+            int piece = pos.board[i];
             if (piece == 0) continue;
 
-            materialScore += getPieceValue(piece);
-          
-            // Positionel bonus via piece-square tables
-            int rank = i >> 4; // Række
-            int file = i & 7;  // Linje
-            // - Hvide brikker bruger PST som "bund" = rank 0 → PST[56..63], dvs. (7-rank)*8+file
-            // - Sorte brikker bruger PST spejlvendt: rank 0 (bund for sort) → PST[0..7], dvs. rank*8+file
-            int index = pstIndex(i, piece > 0);
-          
-            switch (Math.abs(piece)) {
-                case MoveGenerator.PAWN -> positionScore += (piece > 0 ? pawnPST[index] : -pawnPST[index]);
-                case MoveGenerator.KNIGHT -> positionScore += (piece > 0 ? knightPST[index] : -knightPST[index]);
-                case MoveGenerator.BISHOP -> positionScore += (piece > 0 ? bishopPST[index] : -bishopPST[index]);
-                case MoveGenerator.ROOK -> positionScore += (piece > 0 ? rookPST[index] : -rookPST[index]);
-                case MoveGenerator.QUEEN -> positionScore += (piece > 0 ? queenPST[index] : -queenPST[index]);
-                case MoveGenerator.KING -> positionScore += (piece > 0 ? kingPST[index] : -kingPST[index]);
-            }
-
-            boolean isAttacked = Game.isSquareAttacked(i, piece < 0);
-            boolean isDefended = ThreatDetector.isCapturedPieceDefended(i, piece < 0);
-
-            if (isAttacked && !isDefended) {
-                int attacker = findLeastValuableAttacker(i, piece < 0, Game.board);
-                if (attacker != -1) {
-                    int see = staticExchangeEval(i, attacker);
-                    if (see < 0) {
-                        safetyScore += (piece > 0 ? see : -see);
-                    }
-                }
-            }
-
+            int side = piece > 0 ? 0 : 1;
+            material[side] += pieceValue(piece);
+            pst[side] += pieceSquareValue(piece, i);
         }
+    }
 
-        int mobilityScore = 0;
+    public static int evaluatePosition(Position pos) {
+        return evaluatePosition(pos, false);
+    }
 
-        // Modstanderens mobilitet
-        Game.isWhiteTurn = !Game.isWhiteTurn;
-        int opponentMoves = Game.generateLegalMoves().size();
-        mobilityScore -= opponentMoves * 2;
-        Game.isWhiteTurn = !Game.isWhiteTurn;
+    public static int evaluatePosition(Position pos, boolean verbose) {
+        // Materiale og piece-square tables holdes opdateret af make/undo
+        int materialScore = pos.material[0] - pos.material[1];
+        int positionScore = pos.pieceSquareScore[0] - pos.pieceSquareScore[1];
 
-        // Egen mobilitet
-        int ownMoves = Game.generateLegalMoves().size();
-        mobilityScore += ownMoves * 2;
+        int mobilityScore = mobility(pos);
 
         // Beregn total
-        int totalScore = materialScore + positionScore + safetyScore + mateScore + mobilityScore;
+        int totalScore = materialScore + positionScore + mobilityScore;
 
         if (verbose) {
             System.out.println("Position Evaluation:");
             System.out.println(" - Material: " + materialScore);
             System.out.println(" - Position: " + positionScore);
-            System.out.println(" - Safety: " + safetyScore);
-            System.out.println(" - Mate threats: " + mateScore);
+            System.out.println(" - Mobility: " + mobilityScore);
             System.out.println(" = Total: " + totalScore);
         }
 
         return totalScore;
     }
 
+    /**
+     * Mobilitet set fra hvid. I ATTACKS/SAFE tælles angrebne felter direkte fra bitboards
+     * (pseudo-lovligt, uden træk, make/undo eller ændring af turen).
+     */
+    static int mobility(Position pos) {
+        if (mobilityMode == MOBILITY_LEGAL) {
+            // Modstanderens mobilitet
+            pos.changeTurn();
+            int opponentMoves = pos.countLegalMoves();
+            pos.changeTurn();
+
+            // Egen mobilitet
+            int ownMoves = pos.countLegalMoves();
+            int score = (ownMoves - opponentMoves) * 2;
+            return pos.isWhiteTurn ? score : -score;
+        }
+
+        long occupancy = pos.whiteOccupancy | pos.blackOccupancy;
+        return sideMobility(pos, true, occupancy) - sideMobility(pos, false, occupancy);
+    }
+
+    private static int sideMobility(Position pos, boolean white, long occupancy) {
+        int sign = white ? 1 : -1;
+        long[] bitboards = pos.bitboards;
+        long allowed = ~(white ? pos.whiteOccupancy : pos.blackOccupancy);
+        if (mobilityMode == MOBILITY_SAFE) {
+            allowed &= ~Bitboards.pawnAttacks(bitboards[-sign * MoveGenerator.PAWN + 6], !white);
+        }
+
+        int score = 0;
+        for (long b = bitboards[sign * MoveGenerator.KNIGHT + 6]; b != 0; b &= b - 1) {
+            score += MOBILITY_WEIGHT[MoveGenerator.KNIGHT]
+                    * Long.bitCount(Bitboards.KNIGHT_ATTACKS[Long.numberOfTrailingZeros(b)] & allowed);
+        }
+        for (long b = bitboards[sign * MoveGenerator.BISHOP + 6]; b != 0; b &= b - 1) {
+            score += MOBILITY_WEIGHT[MoveGenerator.BISHOP]
+                    * Long.bitCount(Bitboards.bishopAttacks(Long.numberOfTrailingZeros(b), occupancy) & allowed);
+        }
+        for (long b = bitboards[sign * MoveGenerator.ROOK + 6]; b != 0; b &= b - 1) {
+            score += MOBILITY_WEIGHT[MoveGenerator.ROOK]
+                    * Long.bitCount(Bitboards.rookAttacks(Long.numberOfTrailingZeros(b), occupancy) & allowed);
+        }
+        for (long b = bitboards[sign * MoveGenerator.QUEEN + 6]; b != 0; b &= b - 1) {
+            score += MOBILITY_WEIGHT[MoveGenerator.QUEEN]
+                    * Long.bitCount(Bitboards.queenAttacks(Long.numberOfTrailingZeros(b), occupancy) & allowed);
+        }
+        return score;
+    }
+
     static int getPieceValue(int piece) {
         return switch (piece) {
             case MoveGenerator.PAWN -> 100;
@@ -200,64 +244,14 @@ public class Evaluation {
      * Udfører en Static Exchange Evaluation (SEE) på feltet 'square' hvor en angrebende brik står på 'attackerSquare'.
      * Den simulerer skiftende slag og modsvar med de mindst værdifulde angribere, og vurderer bytte-kædens nettoværdi.
      *
+     * @param pos Stillingen udvekslingen foregår i
      * @param square Det felt hvor udvekslingen sker
      * @param attackerSquare Den første angriber der starter udvekslingen
      * @return Den materielle gevinst (positiv, 0 eller negativ) hvis udvekslingen gennemføres
+     * @see StaticExchange#see(Position, int)
      */
-    public static int staticExchangeEval(int square, int attackerSquare) {
-        int[] boardCopy = Game.board.clone();
-        int[] gains = new int[32];
-        int depth = 0;
-
-        int capturedPiece = boardCopy[square];
-        gains[depth++] = Math.abs(getPieceValue(capturedPiece));
-
-        // Første slag
-        boardCopy[square] = boardCopy[attackerSquare];
-        boardCopy[attackerSquare] = 0;
-
-        boolean whiteToMove = boardCopy[square] > 0;
-
-        while (true) {
-            int nextAttacker = findLeastValuableAttacker(square, whiteToMove, boardCopy);
-            if (nextAttacker == -1) break;
-
-            int pieceCaptured = boardCopy[square];
-            boardCopy[square] = boardCopy[nextAttacker];
-            boardCopy[nextAttacker] = 0;
-
-            gains[depth] = Math.abs(getPieceValue(pieceCaptured)) - gains[depth - 1];
-            depth++;
-            whiteToMove = !whiteToMove;
-        }
-
-        // Vind/tab beregnes baglæns
-        for (int i = depth - 2; i >= 0; i--) {
-            gains[i] = Math.max(-gains[i + 1], gains[i]);
-        }
-
-        return gains[0];
-    }
-
-    private static int findLeastValuableAttacker(int square, boolean whiteToMove, int[] board) {
-        int bestValue = Integer.MAX_VALUE;
-        int bestIndex = -1;
-
-        for (int from = 0; from < 128; from++) {
-            if ((from & 0x88) != 0 || board[from] == 0) continue;
-            if ((board[from] > 0) != whiteToMove) continue;
-
-            int absPiece = Math.abs(board[from]);
-            if (MoveGenerator.canPieceReachSquare(from, square, absPiece, whiteToMove, board)) {
-                int val = Math.abs(getPieceValue(board[from]));
-                if (val < bestValue) {
-                    bestValue = val;
-                    bestIndex = from;
-                }
-            }
-        }
-
-        return bestIndex;
+    public static int staticExchangeEval(Position pos, int square, int attackerSquare) {
+        return StaticExchange.see(pos, Move.encode(attackerSquare, square, 0, 0));
     }
 
 }
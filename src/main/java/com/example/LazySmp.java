@@ -0,0 +1,151 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lazy SMP: flere tråde søger samme rod med iterativ uddybning og deler transpositionstabellen.
+ * Hjælpetrådene kommunikerer kun gennem tabellen - det de finder, gør hovedtrådens søgning billigere.
+ * For at trådene ikke søger præcis det samme, starter hver anden hjælper én dybde længere fremme,
+ * og rodtrækkene roteres forskelligt for hver hjælper.
+ *
+ * Antal tråde sættes med -Dchess.threads=N (standard 1, dvs. ingen hjælpere).
+ * Skaleringsrapport: java com.example.LazySmp [dybde]
+ */
+public class LazySmp {
+
+    private final TranspositionTable tt;
+    private final int threads;
+
+    private final List<Search> helperSearches = new ArrayList<>();
+    private final List<Thread> helperThreads = new ArrayList<>();
+
+    /**
+     * @param threads Samlet antal søgetråde inkl. hovedtråden
+     */
+    public LazySmp(TranspositionTable tt, int threads) {
+        this.tt = tt;
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Starter threads - 1 hjælpetråde, hver på sin egen kopi af stillingen.
+     * De kører til maxDepth er søgt, den hårde tidsgrænse nås, eller {@link #stopHelpers()} kaldes.
+     */
+    public void startHelpers(Position root, int maxDepth, TimeManager timeManager) {
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int count = root.generateLegalMoves(rootMoves);
+        if (count == 0) return;
+
+        for (int id = 1; id < threads; id++) {
+            Position pos = new Position(root);
+            Search search = new Search(pos, tt);
+            search.setTimeManager(timeManager);
+            int[] moves = new int[count];
+            for (int i = 0; i < count; i++) {
+                moves[i] = rootMoves[(i + id) % count]; // roteret rækkefølge pr. hjælper
+            }
+            int startDepth = 1 + (id & 1);
+
+            Thread thread = Thread.ofPlatform().daemon().name("smp-helper-" + id).start(() -> {
+                for (int depth = startDepth; depth <= maxDepth; depth++) {
+                    int best = search.searchRoot(depth, moves, count);
+                    if (best == 0) break; // afbrudt
+                    moveToFront(moves, count, best);
+                }
+            });
+            helperSearches.add(search);
+            helperThreads.add(thread);
+        }
+    }
+
+    /**
+     * Stopper hjælperne og venter på dem.
+     *
+     * @return Hjælpernes samlede antal knuder
+     */
+    public long stopHelpers() {
+        for (Search search : helperSearches) search.stop();
+        long nodes = 0;
+        for (int i = 0; i < helperThreads.size(); i++) {
+            try {
+                helperThreads.get(i).join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            nodes += helperSearches.get(i).getNodes();
+        }
+        helperSearches.clear();
+        helperThreads.clear();
+        return nodes;
+    }
+
+    /**
+     * Søger til fast dybde; hovedtråden rapporterer resultatet.
+     *
+     * @return { bedste træk, score, samlet antal knuder }
+     */
+    public long[] search(Position root, int depth) {
+        Position pos = new Position(root);
+        Search search = new Search(pos, tt);
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = pos.generateLegalMoves(moves);
+
+        startHelpers(root, depth, TimeManager.infinite());
+        int best = 0;
+        for (int d = 1; d <= depth; d++) {
+            best = search.searchRoot(d, moves, count);
+            moveToFront(moves, count, best);
+        }
+        long nodes = stopHelpers() + search.getNodes();
+
+        return new long[] { best, search.getRootScore(), nodes };
+    }
+
+    static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skaleringsrapport: tid til fast dybde og nodes pr. sekund ved 1/2/4/8/16 tråde
+     * på nogle faste stillinger, med en ny tabel for hver kørsel.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        String[] fens = {
+                Position.START_FEN,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        };
+
+        System.out.println("Lazy SMP, dybde " + depth + ", " + Runtime.getRuntime().availableProcessors() + " kerner");
+        System.out.printf("%7s %12s %14s %12s %9s%n", "tråde", "tid (ms)", "knuder", "nps", "speedup");
+
+        long baseline = 0;
+        for (int threads : new int[] {1, 2, 4, 8, 16}) {
+            long time = 0;
+            long nodes = 0;
+            for (String fen : fens) {
+                LazySmp smp = new LazySmp(new TranspositionTable(64), threads);
+                long start = System.nanoTime();
+                long[] result = smp.search(new Position(fen), depth);
+                time += System.nanoTime() - start;
+                nodes += result[2];
+            }
+            if (threads == 1) baseline = time;
+            System.out.printf("%7d %12d %,14d %,12d %8.2fx%n", threads, time / 1_000_000, nodes,
+                    nodes * 1_000_000_000L / Math.max(1, time), (double) baseline / time);
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.example;
 
 import javax.swing.*;
+import java.io.IOException;
 
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+
+        // Headless UCI-motor; skal ske før noget AWT/Swing indlæses
+        if (args.length > 0 && args[0].equals("uci")) {
+            Uci.main(args);
+            return;
+        }
 
         // Initialize the board
         Game.loadFEN("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
 
         // Print initial evaluation
-        System.out.println("Evaluering af stilling: " + Evaluation.evaluatePosition());
+        System.out.println("Evaluering af stilling: " + Evaluation.evaluatePosition(Game.position));
 
         // Display the initial board
         printBoard();
@@ -29,7 +36,7 @@ public class Main {
     // Hjælpemetode til at lave AI-træk
     public static void makeAIMove(ChessGUI gui) {
         // Tjek at det er AI's tur
-        if ((Game.isWhiteTurn && !Game.playerIsWhite) || (!Game.isWhiteTurn && Game.playerIsWhite)) {
+        if ((Game.isWhiteTurn() && !Game.playerIsWhite) || (!Game.isWhiteTurn() && Game.playerIsWhite)) {
             Move aiMove = AI.findBestMove(6); // Øget dybde fra 4 til 6
             if (aiMove != null) {
                 System.out.println("🤖 AI trækker: " + aiMove);
@@ -14,31 +14,31 @@ public class MateDetector {
      *
      * @return True hvis der er en mat-trussel (AI skal reagere øjeblikkeligt)
      */
-    public static boolean isMateInOne() {
-        boolean currentPlayerIsWhite = Game.isWhiteTurn;
+    public static boolean isMateInOne(Position pos) {
+        boolean currentPlayerIsWhite = pos.isWhiteTurn;
 
         // Skift til modstanders perspektiv for at se om de kan give mat
-        Game.changeTurn();
+        pos.changeTurn();
 
-        List<Move> opponentMoves = Game.generateLegalMoves();
+        List<Move> opponentMoves = pos.generateLegalMoves();
         boolean mateFound = false;
 
         for (Move move : opponentMoves) {
-            int captured = Game.makeMove(move);
+            int captured = pos.makeMove(move);
 
             // Tjek om dette træk resulterer i skakmat
-            if (Game.isCheckmate()) {
+            if (pos.isCheckmate()) {
                 System.out.println("🚨🚨🚨 CRITICAL: Opponent has mate in 1 with " + move + "!");
                 mateFound = true;
-                Game.undoMove(move, captured);
+                pos.undoMove(move, captured);
                 break;
             }
 
-            Game.undoMove(move, captured);
+            pos.undoMove(move, captured);
         }
 
         // Skift tilbage til original spiller
-        Game.changeTurn();
+        pos.changeTurn();
 
         return mateFound;
     }
@@ -49,20 +49,20 @@ public class MateDetector {
      *
      * @return Liste af træk der giver øjeblikkelig skakmat
      */
-    public static List<Move> findMateInOneMoves() {
+    public static List<Move> findMateInOneMoves(Position pos) {
         List<Move> mateMoves = new java.util.ArrayList<>();
-        List<Move> legalMoves = Game.generateLegalMoves();
+        List<Move> legalMoves = pos.generateLegalMoves();
 
         for (Move move : legalMoves) {
-            int captured = Game.makeMove(move);
+            int captured = pos.makeMove(move);
 
             // Tjek om dette træk resulterer i skakmat for modstanderen
-            if (Game.isCheckmate()) {
+            if (pos.isCheckmate()) {
                 System.out.println("✅ Found mate in 1: " + move);
                 mateMoves.add(move);
             }
 
-            Game.undoMove(move, captured);
+            pos.undoMove(move, captured);
         }
 
         return mateMoves;
@@ -74,26 +74,26 @@ public class MateDetector {
      *
      * @return Et træk der forhindrer skakmat, eller null hvis ingen findes
      */
-    public static Move findMateDefense() {
-        if (!isMateInOne()) {
+    public static Move findMateDefense(Position pos) {
+        if (!isMateInOne(pos)) {
             return null; // Ingen mat-trussel
         }
 
-        List<Move> legalMoves = Game.generateLegalMoves();
+        List<Move> legalMoves = pos.generateLegalMoves();
 
         for (Move move : legalMoves) {
-            int captured = Game.makeMove(move);
+            int captured = pos.makeMove(move);
 
             // Tjek om dette træk forhindrer mat
-            boolean stillMateAfterMove = isMateInOne();
+            boolean stillMateAfterMove = isMateInOne(pos);
 
             if (!stillMateAfterMove) {
                 System.out.println("🛡️ Defense found: " + move + " prevents mate!");
-                Game.undoMove(move, captured);
+                pos.undoMove(move, captured);
                 return move;
             }
 
-            Game.undoMove(move, captured);
+            pos.undoMove(move, captured);
         }
 
         System.out.println("💀 No defense against mate found!");
@@ -106,39 +106,39 @@ public class MateDetector {
      *
      * @return True hvis modstanderen har mat i 2 træk
      */
-    public static boolean isMateInTwo() {
+    public static boolean isMateInTwo(Position pos) {
         // Skift til modstanders perspektiv
-        Game.changeTurn();
+        pos.changeTurn();
 
-        List<Move> opponentFirstMoves = Game.generateLegalMoves();
+        List<Move> opponentFirstMoves = pos.generateLegalMoves();
         boolean mateInTwoFound = false;
 
         for (Move firstMove : opponentFirstMoves) {
-            int captured1 = Game.makeMove(firstMove);
+            int captured1 = pos.makeMove(firstMove);
 
             // Efter modstanderens første træk, kan vi reagere?
-            Game.changeTurn(); // Skift til vores tur
-            List<Move> ourResponses = Game.generateLegalMoves();
+            pos.changeTurn(); // Skift til vores tur
+            List<Move> ourResponses = pos.generateLegalMoves();
 
             boolean allResponsesLeadToMate = true;
 
             for (Move ourResponse : ourResponses) {
-                int captured2 = Game.makeMove(ourResponse);
+                int captured2 = pos.makeMove(ourResponse);
 
                 // Kan modstanderen så give mat?
-                Game.changeTurn(); // Tilbage til modstander
-                if (!isMateInOne()) {
+                pos.changeTurn(); // Tilbage til modstander
+                if (!isMateInOne(pos)) {
                     allResponsesLeadToMate = false;
-                    Game.changeTurn(); // Tilbage til os
-                    Game.undoMove(ourResponse, captured2);
+                    pos.changeTurn(); // Tilbage til os
+                    pos.undoMove(ourResponse, captured2);
                     break;
                 }
-                Game.changeTurn(); // Tilbage til os
-                Game.undoMove(ourResponse, captured2);
+                pos.changeTurn(); // Tilbage til os
+                pos.undoMove(ourResponse, captured2);
             }
 
-            Game.changeTurn(); // Tilbage til modstander
-            Game.undoMove(firstMove, captured1);
+            pos.changeTurn(); // Tilbage til modstander
+            pos.undoMove(firstMove, captured1);
 
             if (allResponsesLeadToMate && ourResponses.size() > 0) {
                 System.out.println("🚨 Warning: Opponent has mate in 2 starting with " + firstMove);
@@ -148,7 +148,7 @@ public class MateDetector {
         }
 
         // Skift tilbage til original spiller
-        Game.changeTurn();
+        pos.changeTurn();
 
         return mateInTwoFound;
     }
@@ -159,22 +159,22 @@ public class MateDetector {
      *
      * @return Tillægscore baseret på mat-trusler (-/+ 1,000,000 for mat)
      */
-    public static int evaluateMateThreats() {
+    public static int evaluateMateThreats(Position pos) {
         // Hvis vi kan give skakmat, er det den bedste score muligt
-        List<Move> mateMoves = findMateInOneMoves();
+        List<Move> mateMoves = findMateInOneMoves(pos);
         if (!mateMoves.isEmpty()) {
             System.out.println("🏆 We have mate in 1! Score: +1,000,000");
             return 1_000_000;
         }
 
         // Hvis vi er truet af skakmat, er det den værste score muligt
-        if (isMateInOne()) {
+        if (isMateInOne(pos)) {
             System.out.println("💀 We are threatened with mate in 1! Score: -1,000,000");
             return -1_000_000;
         }
 
         // Mindre alvorlige trusler får lavere straffe/bonusser
-        if (isMateInTwo()) {
+        if (isMateInTwo(pos)) {
             System.out.println("⚠️ Mate in 2 threat detected. Score: -500,000");
             return -500_000;
         }
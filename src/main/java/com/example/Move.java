@@ -2,59 +2,116 @@ package com.example;
 
 /**
  * Represents a chess move with optional metadata like castling or en passant.
- * Also stores previous state to support undo functionality.
+ * Immutable value: undo state lives on the position's history stack, so a Move
+ * can be shared between threads and stored in tables.
  */
-public class Move {
+public final class Move {
+    // Int-kodning af træk, så søgningen kan arbejde uden at allokere Move-objekter:
+    // bit 0-6 fra-felt, bit 7-13 til-felt, bit 14-16 forvandlingsbrik, bit 17-19 flag
+    public static final int NONE = 0;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE_KINGSIDE = 1 << 18;
+    public static final int CASTLE_QUEENSIDE = 1 << 19;
+
     public final int from;
     public final int to;
 
-    public boolean isEnPassant = false;
-    public boolean isCastleKingside = false;
-    public boolean isCastleQueenside = false;
-
-    // Previous state for undoing moves
-    public boolean prevWhiteKingMoved;
-    public boolean prevBlackKingMoved;
-    public boolean prevWhiteKingsideRookMoved;
-    public boolean prevWhiteQueensideRookMoved;
-    public boolean prevBlackKingsideRookMoved;
-    public boolean prevBlackQueensideRookMoved;
-    public int prevEnPassantSquare;
-
-    public int promotionPiece = 0;
+    public final boolean isEnPassant;
+    public final boolean isCastleKingside;
+    public final boolean isCastleQueenside;
 
+    public final int promotionPiece;
 
     /**
      * Constructs a move from one square to another.
      */
     public Move(int from, int to, int promotionPiece) {
-        this.from = from;
-        this.to = to;
-        this.promotionPiece = promotionPiece;
+        this(from, to, promotionPiece, 0);
     }
 
     public Move(int from, int to) {
+        this(from, to, 0, 0);
+    }
+
+    /**
+     * @param flags {@link #EN_PASSANT}, {@link #CASTLE_KINGSIDE} eller {@link #CASTLE_QUEENSIDE}
+     */
+    public Move(int from, int to, int promotionPiece, int flags) {
         this.from = from;
         this.to = to;
+        this.promotionPiece = promotionPiece;
+        this.isEnPassant = (flags & EN_PASSANT) != 0;
+        this.isCastleKingside = (flags & CASTLE_KINGSIDE) != 0;
+        this.isCastleQueenside = (flags & CASTLE_QUEENSIDE) != 0;
+    }
+
+    /**
+     * Pakker trækket i en int (fra, til, forvandling og flag), fx til transpositionstabellen.
+     * 0 bruges aldrig af et rigtigt træk og kan derfor betyde "intet træk".
+     */
+    public int encoded() {
+        int flags = 0;
+        if (isEnPassant) flags |= EN_PASSANT;
+        if (isCastleKingside) flags |= CASTLE_KINGSIDE;
+        if (isCastleQueenside) flags |= CASTLE_QUEENSIDE;
+        return encode(from, to, promotionPiece, flags);
     }
 
     /**
-     * Copy constructor - used for move simulation (e.g., legal move filtering).
+     * Laver et Move-objekt ud fra et int-kodet træk (bruges ved grænsen til GUI'en).
      */
-    public Move(Move other) {
-        this.from = other.from;
-        this.to = other.to;
-        this.isEnPassant = other.isEnPassant;
-        this.isCastleKingside = other.isCastleKingside;
-        this.isCastleQueenside = other.isCastleQueenside;
-
-        this.prevWhiteKingMoved = other.prevWhiteKingMoved;
-        this.prevBlackKingMoved = other.prevBlackKingMoved;
-        this.prevWhiteKingsideRookMoved = other.prevWhiteKingsideRookMoved;
-        this.prevWhiteQueensideRookMoved = other.prevWhiteQueensideRookMoved;
-        this.prevBlackKingsideRookMoved = other.prevBlackKingsideRookMoved;
-        this.prevBlackQueensideRookMoved = other.prevBlackQueensideRookMoved;
-        this.prevEnPassantSquare = other.prevEnPassantSquare;
+    public static Move decode(int move) {
+        return new Move(from(move), to(move), promotion(move), move & (EN_PASSANT | CASTLE_KINGSIDE | CASTLE_QUEENSIDE));
+    }
+
+    public static int encode(int from, int to, int promotionPiece, int flags) {
+        return from | (to << 7) | (promotionPiece << 14) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x7F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 7) & 0x7F;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 14) & 0x7;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & (CASTLE_KINGSIDE | CASTLE_QUEENSIDE)) != 0;
+    }
+
+    public static String toString(int move) {
+        return MoveGenerator.squareToCoord(from(move)) + " -> " + MoveGenerator.squareToCoord(to(move));
+    }
+
+    // Koordinatnotation som "e2e4" eller "e7e8q", som andre motorer bruger i perft-divide
+    public static String toUci(int move) {
+        String text = MoveGenerator.squareToCoord(from(move)) + MoveGenerator.squareToCoord(to(move));
+        return switch (promotion(move)) {
+            case MoveGenerator.QUEEN -> text + "q";
+            case MoveGenerator.ROOK -> text + "r";
+            case MoveGenerator.BISHOP -> text + "b";
+            case MoveGenerator.KNIGHT -> text + "n";
+            default -> text;
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Move other && other.encoded() == encoded();
+    }
+
+    @Override
+    public int hashCode() {
+        return encoded();
     }
 
     @Override
@@ -1,8 +1,5 @@
 package com.example;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class MoveGenerator {
     // Piece constants
     public static final int PAWN = 1;
@@ -12,42 +9,62 @@ public class MoveGenerator {
     public static final int QUEEN = 5;
     public static final int KING = 6;
 
+    // Øvre grænse for antal træk i en stilling (det kendte maksimum er 218)
+    public static final int MAX_MOVES = 256;
+
+    // Hvilke træk generatorerne laver: alle, kun taktiske (slag, en passant og forvandlinger) eller kun stille
+    public static final int GEN_ALL = 0;
+    public static final int GEN_TACTICAL = 1;
+    public static final int GEN_QUIET = 2;
+
     // Direction offsets for movement
     public static final int[] knightOffsets = { -33, -31, -18, -14, 14, 18, 31, 33 };
     public static final int[] rookDirections = { -16, 16, -1, 1 };
     public static final int[] bishopDirections = { -17, -15, 15, 17 };
-
-    public static boolean canPieceReachSquare(int from, int to, int pieceType, boolean isWhite, int[] board) {
-        return switch (pieceType) {
-            case KNIGHT -> {
-                for (int offset : knightOffsets) {
-                    if (from + offset == to) yield true;
-                }
-                yield false;
-            }
-
-            case BISHOP -> canReachBySliding(from, to, bishopDirections, board);
-
-            case ROOK -> canReachBySliding(from, to, rookDirections, board);
-
-            case QUEEN -> canReachBySliding(from, to, bishopDirections, board) ||
-                    canReachBySliding(from, to, rookDirections, board);
-
-            case KING -> {
-                for (int offset : Game.kingOffsets) {
-                    if (from + offset == to) yield true;
+    public static final int[] kingOffsets = { -17, -16, -15, -1, 1, 15, 16, 17 };
+
+    // 0x88-angrebstabel: for hver forskel to - from (indeks + 119) hvilke briktyper der kan angribe
+    // langs den (bit 1 << type, hvid bonde på PAWN-bitten, sort bonde på BLACK_PAWN_BIT) og hvilket skridt
+    // en glidende brik skal gå. Forskellen er entydig i 0x88, så der aldrig kan "wrappes" rundt om en kant.
+    static final int BLACK_PAWN_BIT = 1 << 7;
+    static final int[] ATTACK_TYPES = new int[240];
+    static final int[] ATTACK_STEP = new int[240];
+
+    static {
+        for (int offset : knightOffsets) ATTACK_TYPES[offset + 119] |= 1 << KNIGHT;
+        for (int offset : kingOffsets) ATTACK_TYPES[offset + 119] |= 1 << KING;
+        ATTACK_TYPES[15 + 119] |= 1 << PAWN;
+        ATTACK_TYPES[17 + 119] |= 1 << PAWN;
+        ATTACK_TYPES[-15 + 119] |= BLACK_PAWN_BIT;
+        ATTACK_TYPES[-17 + 119] |= BLACK_PAWN_BIT;
+
+        for (int[] directions : new int[][] { bishopDirections, rookDirections }) {
+            int slider = directions == bishopDirections ? BISHOP : ROOK;
+            for (int dir : directions) {
+                for (int distance = 1; distance < 8; distance++) {
+                    ATTACK_TYPES[dir * distance + 119] |= (1 << slider) | (1 << QUEEN);
+                    ATTACK_STEP[dir * distance + 119] = dir;
                 }
-                yield false;
             }
+        }
+    }
 
-            case PAWN -> {
-                int dir = isWhite ? 16 : -16;
-                yield ((from & 7) != 0 && from + dir - 1 == to) ||
-                        ((from & 7) != 7 && from + dir + 1 == to);
+    /**
+     * Kan en brik af typen på from angribe to? Ét tabelopslag, og for glidende brikker én stråle
+     * langs den ene mulige retning.
+     */
+    public static boolean canPieceReachSquare(int from, int to, int pieceType, boolean isWhite, int[] board) {
+        int index = to - from + 119;
+        int bit = pieceType == PAWN && !isWhite ? BLACK_PAWN_BIT : 1 << pieceType;
+        if ((ATTACK_TYPES[index] & bit) == 0) return false;
+
+        if (pieceType == BISHOP || pieceType == ROOK || pieceType == QUEEN) {
+            int step = ATTACK_STEP[index];
+            for (int sq = from + step; sq != to; sq += step) {
+                if (board[sq] != 0) return false;
             }
-
-            default -> false;
-        };
+        }
+        return true;
     }
 
 
@@ -63,193 +80,189 @@ public class MoveGenerator {
         return (whiteToMove && piece > 0) || (!whiteToMove && piece < 0);
     }
 
+    // Skal et (ikke-bonde) træk til et felt med denne brik med i den ønskede slags? Egne brikker er sorteret fra før
+    private static boolean wanted(int target, int kind) {
+        return target == 0 ? kind != GEN_TACTICAL : kind != GEN_QUIET;
+    }
+
     // Generate knight moves (L-shaped in 8 directions)
-    public static void generateKnightMoves(int from, List<Move> moves, boolean whiteToMove) {
+    public static int generateKnightMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, int kind) {
         for (int offset : knightOffsets) {
             int to = from + offset;
             if (!isOnBoard(to)) continue;
 
-            int target = Game.board[to];
-            if (isFriendlyPiece(target, whiteToMove)) continue;
+            int target = pos.board[to];
+            if (isFriendlyPiece(target, whiteToMove) || !wanted(target, kind)) continue;
 
-            moves.add(new Move(from, to));
+            moves[count++] = Move.encode(from, to, 0, 0);
         }
+        return count;
     }
 
     // Generate moves for sliding pieces (rooks, bishops, queens)
-    public static void generateSlidingMoves(int from, List<Move> moves, boolean whiteToMove, int[] directions) {
-        slide(from, directions, (f, t, target) -> {
-            if (target == 0) {
-                moves.add(new Move(f, t));
-                return true; // fortsæt videre i denne retning
-            } else if (isOpponentPiece(target, whiteToMove)) {
-                moves.add(new Move(f, t));
-            }
-            return false; // stop hvis modstander eller blokering
-        }, Game.board);
-    }
-
-    public static void slide(int from, int[] directions, SlidingHandler handler, int[] board) {
+    public static int generateSlidingMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, int[] directions, int kind) {
         for (int dir : directions) {
-            int sq = from;
+            int to = from;
             while (true) {
-                sq += dir;
-                if ((sq & 0x88) != 0) break;
+                to += dir;
+                if (!isOnBoard(to)) break;
 
-                int target = board[sq];
-                boolean cont = handler.handle(from, sq, target);
-                if (!cont || target != 0) break;
+                int target = pos.board[to];
+                if (target == 0) {
+                    if (kind != GEN_TACTICAL) moves[count++] = Move.encode(from, to, 0, 0);
+                    continue; // fortsæt videre i denne retning
+                }
+                if (isOpponentPiece(target, whiteToMove) && kind != GEN_QUIET) {
+                    moves[count++] = Move.encode(from, to, 0, 0);
+                }
+                break; // stop ved modstander eller blokering
             }
         }
+        return count;
     }
 
-    public static boolean canReachBySliding(int from, int to, int[] directions, int[] board) {
-        final boolean[] found = {false};
-        slide(from, directions, (f, t, piece) -> {
-            if (t == to) {
-                found[0] = true;
-                return false;
-            }
-            return true;
-        }, board);
-        return found[0];
+    public static int generateRookMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, int kind) {
+        return generateSlidingMoves(pos, from, moves, count, whiteToMove, rookDirections, kind);
     }
 
-
-    public static void generateRookMoves(int from, List<Move> moves, boolean whiteToMove) {
-        generateSlidingMoves(from, moves, whiteToMove, rookDirections);
+    public static int generateBishopMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, int kind) {
+        return generateSlidingMoves(pos, from, moves, count, whiteToMove, bishopDirections, kind);
     }
 
-    public static void generateBishopMoves(int from, List<Move> moves, boolean whiteToMove) {
-        generateSlidingMoves(from, moves, whiteToMove, bishopDirections);
+    public static int generateQueenMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, int kind) {
+        count = generateSlidingMoves(pos, from, moves, count, whiteToMove, rookDirections, kind);
+        return generateSlidingMoves(pos, from, moves, count, whiteToMove, bishopDirections, kind);
     }
 
-    public static void generateQueenMoves(int from, List<Move> moves, boolean whiteToMove) {
-        generateSlidingMoves(from, moves, whiteToMove, rookDirections);
-        generateSlidingMoves(from, moves, whiteToMove, bishopDirections);
-    }
+    // Felter mellem konge og tårn, der skal være tomme
+    private static final int[] WHITE_KINGSIDE_PATH = {5, 6};
+    private static final int[] WHITE_QUEENSIDE_PATH = {1, 2, 3};
+    private static final int[] BLACK_KINGSIDE_PATH = {117, 118};
+    private static final int[] BLACK_QUEENSIDE_PATH = {113, 114, 115};
+
+    // Forvandlingsbrikker i den rækkefølge de genereres
+    static final int[] PROMOTION_PIECES = {QUEEN, ROOK, BISHOP, KNIGHT};
 
     // Helper for adding castling moves if conditions are met
-    public static void tryAddCastleMove(List<Move> moves, int from, int to, boolean white, boolean kingside) {
-        int[] path = white ? (kingside ? new int[]{5, 6} : new int[]{1, 2, 3})
-                : (kingside ? new int[]{117, 118} : new int[]{113, 114, 115});
+    public static int tryAddCastleMove(Position pos, int[] moves, int count, int from, int to, boolean white, boolean kingside) {
+        int[] path = white ? (kingside ? WHITE_KINGSIDE_PATH : WHITE_QUEENSIDE_PATH)
+                : (kingside ? BLACK_KINGSIDE_PATH : BLACK_QUEENSIDE_PATH);
         int rookSquare = white ? (kingside ? 7 : 0) : (kingside ? 119 : 112);
         int kingSquare = white ? 4 : 116;
 
-        if (Game.board[rookSquare] != (white ? ROOK : -ROOK)) return;
-        if (Game.board[kingSquare] != (white ? KING : -KING)) return;
+        if (pos.board[rookSquare] != (white ? ROOK : -ROOK)) return count;
+        if (pos.board[kingSquare] != (white ? KING : -KING)) return count;
 
         for (int sq : path) {
-            if (Game.board[sq] != 0 || Game.isSquareAttacked(sq, !white)) return;
+            if (pos.board[sq] != 0) return count;
         }
 
-        Move castle = new Move(from, to);
-        if (kingside) castle.isCastleKingside = true;
-        else castle.isCastleQueenside = true;
-        moves.add(castle);
+        // Kongen må ikke passere eller lande på et angrebet felt (b-filen ved lang rokade er ligegyldig)
+        int step = kingside ? 1 : -1;
+        if (pos.isSquareAttacked(kingSquare + step, !white) || pos.isSquareAttacked(kingSquare + 2 * step, !white)) {
+            return count;
+        }
+
+        moves[count++] = Move.encode(from, to, 0, kingside ? Move.CASTLE_KINGSIDE : Move.CASTLE_QUEENSIDE);
+        return count;
     }
 
-    // Generate king moves including castling
-    public static void generateKingMoves(int from, List<Move> moves, boolean whiteToMove, boolean forCheckOnly) {
-        // --- NYT: kan ikke rokere hvis man allerede er i skak ---
-        if (!forCheckOnly && Game.isCurrentPlayerInCheck()) {
-            // Vi genererer stadig de “almindelige” ét-felt-king-træk længere nede,
-            // men ingen rokade-træk
-            for (int offset : Game.kingOffsets) {
-                int to = from + offset;
-                if (!isOnBoard(to)) continue;
-                int target = Game.board[to];
-                if (isFriendlyPiece(target, whiteToMove)) continue;
-                moves.add(new Move(from, to));
-            }
-            return;
-        }
+    // Generate king moves including castling; inCheck er allerede beregnet af kalderen
+    public static int generateKingMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, boolean inCheck) {
+        return generateKingMoves(pos, from, moves, count, whiteToMove, inCheck, GEN_ALL);
+    }
 
-        // --- Eksisterende: ét-felt-king-træk fortsætter som normalt ---
-        for (int offset : Game.kingOffsets) {
+    public static int generateKingMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, boolean inCheck, int kind) {
+        for (int offset : kingOffsets) {
             int to = from + offset;
             if (!isOnBoard(to)) continue;
 
-            int target = Game.board[to];
-            if (isFriendlyPiece(target, whiteToMove)) continue;
+            int target = pos.board[to];
+            if (isFriendlyPiece(target, whiteToMove) || !wanted(target, kind)) continue;
 
-            moves.add(new Move(from, to));
+            moves[count++] = Move.encode(from, to, 0, 0);
         }
 
-        if (forCheckOnly) return;
+        // Kan ikke rokere uden rettigheder, eller hvis man allerede er i skak; rokade er et stille træk
+        int rights = pos.castlingRights & (whiteToMove
+                ? Position.WHITE_KINGSIDE | Position.WHITE_QUEENSIDE
+                : Position.BLACK_KINGSIDE | Position.BLACK_QUEENSIDE);
+        if (rights == 0 || inCheck || kind == GEN_TACTICAL) return count;
+
+        // --- Rokade-logik: rettigheder og path-checks ---
+        if (whiteToMove) {
+            if (pos.canCastle(Position.WHITE_KINGSIDE))   count = tryAddCastleMove(pos, moves, count, from,  6, true,  true);
+            if (pos.canCastle(Position.WHITE_QUEENSIDE))  count = tryAddCastleMove(pos, moves, count, from,  2, true,  false);
+        } else {
+            if (pos.canCastle(Position.BLACK_KINGSIDE))   count = tryAddCastleMove(pos, moves, count, from, 118, false, true);
+            if (pos.canCastle(Position.BLACK_QUEENSIDE))  count = tryAddCastleMove(pos, moves, count, from, 114, false, false);
+        }
+        return count;
+    }
 
-        // --- Eksisterende rokade-logik, inklusive hasMoved-flag og path-checks ---
-        if (whiteToMove && !Game.whiteKingMoved) {
-            if (!Game.whiteKingsideRookMoved)   tryAddCastleMove(moves, from,  6, true,  true);
-            if (!Game.whiteQueensideRookMoved)  tryAddCastleMove(moves, from,  2, true,  false);
+    // Tilføjer et bondetræk; ved sidste række ét træk pr. forvandlingsbrik
+    private static int addPawnMove(int[] moves, int count, int from, int to, boolean promotes) {
+        if (!promotes) {
+            moves[count++] = Move.encode(from, to, 0, 0);
+            return count;
         }
-        if (!whiteToMove && !Game.blackKingMoved) {
-            if (!Game.blackKingsideRookMoved)   tryAddCastleMove(moves, from, 118, false, true);
-            if (!Game.blackQueensideRookMoved)  tryAddCastleMove(moves, from, 114, false, false);
+        for (int piece : PROMOTION_PIECES) {
+            moves[count++] = Move.encode(from, to, piece, 0);
         }
+        return count;
     }
 
-
     // Generate pawn moves (forward, captures, double move, en passant)
-    public static void generatePawnMoves(int from, List<Move> moves, boolean whiteToMove, boolean forCheckOnly) {
+    // Forvandlinger regnes som taktiske, også uden slag; dobbelttræk og almindelige fremtræk er stille
+    public static int generatePawnMoves(Position pos, int from, int[] moves, int count, boolean whiteToMove, int kind) {
         int direction = whiteToMove ? 16 : -16;
         int startRank = whiteToMove ? 1 : 6;
         int epRank = whiteToMove ? 4 : 3;
-        int[] captureOffsets = { direction - 1, direction + 1 };
-
-        if (forCheckOnly) {
-            for (int offset : captureOffsets) {
-                int target = from + offset;
-                if (!isOnBoard(target)) continue;
-
-                int targetPiece = Game.board[target];
-                if (isOpponentPiece(targetPiece, whiteToMove)) {
-                    moves.add(new Move(from, target));
-                }
-            }
-            return;
-        }
+        int promotionRank = whiteToMove ? 7 : 0;
 
         // Move one step forward
         int oneForward = from + direction;
-        if (isOnBoard(oneForward) && Game.board[oneForward] == 0) {
-            moves.add(new Move(from, oneForward));
+        if (isOnBoard(oneForward) && pos.board[oneForward] == 0) {
+            boolean promotes = (oneForward >> 4) == promotionRank;
+            if (promotes ? kind != GEN_QUIET : kind != GEN_TACTICAL) {
+                count = addPawnMove(moves, count, from, oneForward, promotes);
+            }
 
             // Move two steps forward from starting rank
             int twoForward = from + 2 * direction;
-            if ((from >> 4) == startRank && Game.board[twoForward] == 0) {
-                moves.add(new Move(from, twoForward));
+            if ((from >> 4) == startRank && pos.board[twoForward] == 0 && kind != GEN_TACTICAL) {
+                moves[count++] = Move.encode(from, twoForward, 0, 0);
             }
         }
+        if (kind == GEN_QUIET) return count;
 
         // Normal captures
-        for (int offset : captureOffsets) {
-            int target = from + offset;
+        for (int side = -1; side <= 1; side += 2) {
+            int target = from + direction + side;
             if (!isOnBoard(target)) continue;
 
-            int targetPiece = Game.board[target];
+            int targetPiece = pos.board[target];
             if (isOpponentPiece(targetPiece, whiteToMove)) {
-                moves.add(new Move(from, target));
+                count = addPawnMove(moves, count, from, target, (target >> 4) == promotionRank);
             }
         }
 
         // En passant capture
-        if ((from >> 4) == epRank && Game.enPassantSquare != -1) {
-            for (int sideOffset : new int[]{-1, 1}) {
+        if ((from >> 4) == epRank && pos.enPassantSquare != -1) {
+            for (int sideOffset = -1; sideOffset <= 1; sideOffset += 2) {
                 int sideSquare = from + sideOffset;
                 if (!isOnBoard(sideSquare)) continue;
 
-                int sidePiece = Game.board[sideSquare];
+                int sidePiece = pos.board[sideSquare];
                 if ((whiteToMove && sidePiece != -PAWN) || (!whiteToMove && sidePiece != PAWN)) continue;
 
                 int epTarget = from + direction + sideOffset;
-                if (epTarget == Game.enPassantSquare) {
-                    Move epMove = new Move(from, epTarget);
-                    epMove.isEnPassant = true;
-                    moves.add(epMove);
+                if (epTarget == pos.enPassantSquare) {
+                    moves[count++] = Move.encode(from, epTarget, 0, Move.EN_PASSANT);
                 }
             }
         }
+        return count;
     }
 
     // Convert board index to coordinate string like "e2"
@@ -260,41 +273,112 @@ public class MoveGenerator {
         return "" + (char)('a' + file) + (rank + 1);
     }
 
-    // Main entry: generate all legal moves
-    static List<Move> generateAllMoves() {
-        return generateAllMoves(Game.isWhiteTurn, false);
+    // Generate all pseudo-legal moves for the side to move into the buffer; returns the number of moves
+    public static int generateAllMoves(Position pos, int[] moves) {
+        return generateAllMoves(pos, moves, pos.isCurrentPlayerInCheck());
+    }
+
+    public static int generateAllMoves(Position pos, int[] moves, boolean inCheck) {
+        return generateMoves(pos, moves, 0, inCheck, GEN_ALL);
+    }
+
+    /**
+     * Pseudo-lovlige træk af den givne slags ({@link #GEN_ALL}, {@link #GEN_TACTICAL} eller {@link #GEN_QUIET}),
+     * skrevet ind i bufferen fra plads start.
+     *
+     * @return Ny længde af bufferen
+     */
+    public static int generateMoves(Position pos, int[] moves, int start, boolean inCheck, int kind) {
+        boolean whiteToMove = pos.isWhiteTurn;
+        int count = start;
+
+        // Briklisterne: kun de felter hvor sidens brikker faktisk står
+        int sign = whiteToMove ? 1 : -1;
+        for (int type = PAWN; type <= KING; type++) {
+            int base = (sign * type + 6) * Position.MAX_PIECES;
+            for (int n = 0; n < pos.pieceCount[sign * type + 6]; n++) {
+                count = generatePieceMoves(pos, pos.pieceSquares[base + n], type, moves, count, whiteToMove, inCheck, kind);
+            }
+        }
+
+        return count;
+    }
+
+    // Trækkene for én brik af typen på feltet from
+    static int generatePieceMoves(Position pos, int from, int type, int[] moves, int count, boolean whiteToMove,
+                                  boolean inCheck, int kind) {
+        return switch (type) {
+            case PAWN -> generatePawnMoves(pos, from, moves, count, whiteToMove, kind);
+            case KNIGHT -> generateKnightMoves(pos, from, moves, count, whiteToMove, kind);
+            case BISHOP -> generateBishopMoves(pos, from, moves, count, whiteToMove, kind);
+            case ROOK -> generateRookMoves(pos, from, moves, count, whiteToMove, kind);
+            case QUEEN -> generateQueenMoves(pos, from, moves, count, whiteToMove, kind);
+            default -> generateKingMoves(pos, from, moves, count, whiteToMove, inCheck, kind);
+        };
     }
 
-    // Generate all moves for current side
-    public static List<Move> generateAllMoves(boolean whiteToMove, boolean forCheckOnly) {
-        List<Move> moves = new ArrayList<>();
-
-        for (int i = 0; i < 128; i++) {
-            if (!isOnBoard(i)) continue;
-            int piece = Game.board[i];
-            if (piece == 0) continue;
-
-            if (whiteToMove && piece > 0) {
-                switch (piece) {
-                    case PAWN -> generatePawnMoves(i, moves, true, forCheckOnly);
-                    case KNIGHT -> generateKnightMoves(i, moves, true);
-                    case BISHOP -> generateBishopMoves(i, moves, true);
-                    case ROOK -> generateRookMoves(i, moves, true);
-                    case QUEEN -> generateQueenMoves(i, moves, true);
-                    case KING -> generateKingMoves(i, moves, true, forCheckOnly);
+    /**
+     * Finder skakgivere og bundne brikker for siden i trækket ved at gå de otte stråler ud fra kongen
+     * og tjekke springer- og bondefelterne. Resultatet lægges i pos.checkers, pos.checkMask og pos.pinned
+     * (bitboard-felter), som {@link Position#generateLegalMoves(int[])} bruger til at filtrere trækkene.
+     */
+    static void computeCheckInfo(Position pos, int kingSquare, boolean white) {
+        int[] board = pos.board;
+        int enemy = white ? -1 : 1;
+        int king = Position.toBitboardSquare(kingSquare);
+        int checkers = 0;
+        long checkMask = 0L;
+        long pinned = 0L;
+
+        int direction = white ? 16 : -16;
+        for (int side = -1; side <= 1; side += 2) {
+            int target = kingSquare + direction + side;
+            if (isOnBoard(target) && board[target] == enemy * PAWN) {
+                checkers++;
+                checkMask |= 1L << Position.toBitboardSquare(target);
+            }
+        }
+
+        for (int offset : knightOffsets) {
+            int target = kingSquare + offset;
+            if (isOnBoard(target) && board[target] == enemy * KNIGHT) {
+                checkers++;
+                checkMask |= 1L << Position.toBitboardSquare(target);
+            }
+        }
+
+        for (int offset : kingOffsets) {
+            boolean diagonal = Math.abs(offset) == 15 || Math.abs(offset) == 17;
+            int slider = diagonal ? BISHOP : ROOK;
+            int blocker = -1;
+            int target = kingSquare;
+            while (true) {
+                target += offset;
+                if (!isOnBoard(target)) break;
+                int piece = board[target];
+                if (piece == 0) continue;
+
+                if (isFriendlyPiece(piece, white)) {
+                    if (blocker != -1) break; // to egne brikker - ingen binding
+                    blocker = target;
+                    continue;
                 }
-            } else if (!whiteToMove && piece < 0) {
-                switch (Math.abs(piece)) {
-                    case PAWN -> generatePawnMoves(i, moves, false, forCheckOnly);
-                    case KNIGHT -> generateKnightMoves(i, moves, false);
-                    case BISHOP -> generateBishopMoves(i, moves, false);
-                    case ROOK -> generateRookMoves(i, moves, false);
-                    case QUEEN -> generateQueenMoves(i, moves, false);
-                    case KING -> generateKingMoves(i, moves, false, forCheckOnly);
+
+                if (piece == enemy * slider || piece == enemy * QUEEN) {
+                    int attacker = Position.toBitboardSquare(target);
+                    if (blocker == -1) {
+                        checkers++;
+                        checkMask |= Bitboards.BETWEEN[king][attacker] | (1L << attacker);
+                    } else {
+                        pinned |= 1L << Position.toBitboardSquare(blocker);
+                    }
                 }
+                break;
             }
         }
 
-        return moves;
+        pos.checkers = checkers;
+        pos.checkMask = checkers == 0 ? -1L : checkMask;
+        pos.pinned = pinned;
     }
 }
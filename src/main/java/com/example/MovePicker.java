@@ -0,0 +1,209 @@
+package com.example;
+
+/**
+ * Udleverer trækkene i en knude ét ad gangen, i etaper, i stedet for at generere og sortere alle på forhånd:
+ * hash-træk, vindende slag (MVV-LVA), killer-træk, modtræk, stille træk (historik) og til sidst tabende slag.
+ * Giver et tidligt træk cutoff, bliver de stille træk aldrig genereret.
+ *
+ * Hvert træk scores én gang i en parallel buffer og vælges med pick-best. Slag der taber materiale ifølge
+ * SEE, og underforvandlinger, flyttes til starten af bufferen og kommer først efter de stille træk.
+ * Hash-, killer- og modtræk kommer fra andre stillinger og tjekkes med {@link Position#isLegal(int)}.
+ *
+ * Søgningen har én picker pr. ply. Underknuderne overskriver stillingens skakinformation, så den gemmes
+ * ved {@link #init} og lægges tilbage før hver generering - og når trækkene er brugt op, så
+ * {@code pos.checkers} igen gælder for knuden (mat eller pat).
+ */
+final class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int CAPTURES_INIT = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int KILLER_1 = 3;
+    private static final int KILLER_2 = 4;
+    private static final int COUNTER = 5;
+    private static final int QUIETS_INIT = 6;
+    private static final int QUIETS = 7;
+    private static final int BAD_CAPTURES = 8;
+    private static final int DONE = 9;
+
+    // Mest værdifulde offer, mindst værdifulde angriber: [offer][angriber], briktyper 1-6
+    static final int[][] MVV_LVA = new int[7][7];
+
+    static {
+        for (int victim = 0; victim <= MoveGenerator.KING; victim++) {
+            for (int attacker = 0; attacker <= MoveGenerator.KING; attacker++) {
+                MVV_LVA[victim][attacker] = victim * 8 - attacker;
+            }
+        }
+    }
+
+    private final Position pos;
+    private final int[] moves;
+    private final int[] scores;
+
+    private int stage;
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+    private int counterMove;
+    private int[] history;
+    private int historyBase;
+
+    private int current;
+    private int end;
+    private int badEnd;
+
+    private int checkers;
+    private long checkMask;
+    private long pinned;
+
+    MovePicker(Position pos, int[] moves, int[] scores) {
+        this.pos = pos;
+        this.moves = moves;
+        this.scores = scores;
+    }
+
+    /**
+     * Gør pickeren klar til en ny knude. Forudsætter at {@link Position#updateCheckInfo()} lige er kaldt
+     * for stillingen; skakinformationen gemmes herfra.
+     *
+     * @param history Historiktabellen, eller null hvis stille træk ikke skal ordnes
+     */
+    void init(int hashMove, int killer1, int killer2, int counterMove, int[] history) {
+        checkers = pos.checkers;
+        checkMask = pos.checkMask;
+        pinned = pos.pinned;
+
+        this.hashMove = hashMove;
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+        this.counterMove = counterMove;
+        this.history = history;
+        historyBase = pos.isWhiteTurn ? 0 : 1 << 14;
+        stage = HASH;
+    }
+
+    /**
+     * @return Næste lovlige træk, eller 0 når der ikke er flere
+     */
+    int next() {
+        while (true) {
+            switch (stage) {
+                case HASH -> {
+                    stage = CAPTURES_INIT;
+                    restoreCheckInfo();
+                    if (pos.isLegal(hashMove)) return hashMove;
+                }
+                case CAPTURES_INIT -> {
+                    restoreCheckInfo();
+                    current = badEnd = 0;
+                    end = pos.generateLegalMoves(moves, 0, MoveGenerator.GEN_TACTICAL);
+                    for (int i = 0; i < end; i++) scores[i] = tacticalScore(moves[i]);
+                    stage = GOOD_CAPTURES;
+                }
+                case GOOD_CAPTURES -> {
+                    while (current < end) {
+                        int move = pickBest(current++);
+                        if (move == hashMove) continue;
+                        if (isBadCapture(move)) {
+                            moves[badEnd++] = move;
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = KILLER_1;
+                }
+                case KILLER_1 -> {
+                    stage = KILLER_2;
+                    if (isUsableQuiet(killer1)) return killer1;
+                }
+                case KILLER_2 -> {
+                    stage = COUNTER;
+                    if (killer2 != killer1 && isUsableQuiet(killer2)) return killer2;
+                }
+                case COUNTER -> {
+                    stage = QUIETS_INIT;
+                    if (counterMove != killer1 && counterMove != killer2 && isUsableQuiet(counterMove)) {
+                        return counterMove;
+                    }
+                }
+                case QUIETS_INIT -> {
+                    restoreCheckInfo();
+                    current = end;
+                    end = pos.generateLegalMoves(moves, current, MoveGenerator.GEN_QUIET);
+                    for (int i = current; i < end; i++) {
+                        scores[i] = history == null ? 0 : history[historyBase | (moves[i] & 0x3FFF)];
+                    }
+                    stage = QUIETS;
+                }
+                case QUIETS -> {
+                    while (current < end) {
+                        int move = pickBest(current++);
+                        if (move == hashMove || move == killer1 || move == killer2 || move == counterMove) continue;
+                        return move;
+                    }
+                    current = 0;
+                    stage = BAD_CAPTURES;
+                }
+                case BAD_CAPTURES -> {
+                    if (current < badEnd) return moves[current++];
+                    stage = DONE;
+                    restoreCheckInfo();
+                }
+                default -> {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    // Slag scores med MVV-LVA; en dronningforvandling tæller som at slå en ekstra brik
+    private int tacticalScore(int move) {
+        int victim = Move.isEnPassant(move) ? MoveGenerator.PAWN : Math.abs(pos.board[Move.to(move)]);
+        int attacker = Math.abs(pos.board[Move.from(move)]);
+        int score = MVV_LVA[victim][attacker];
+        if (Move.promotion(move) == MoveGenerator.QUEEN) score += MVV_LVA[MoveGenerator.QUEEN][MoveGenerator.PAWN];
+        return score;
+    }
+
+    // Underforvandlinger og slag hvor SEE er negativ; et offer der er mindst lige så meget værd som angriberen, er aldrig tabende
+    private boolean isBadCapture(int move) {
+        int promotion = Move.promotion(move);
+        if (promotion != 0) return promotion != MoveGenerator.QUEEN;
+        if (history == null) return false;
+
+        int victim = Move.isEnPassant(move) ? MoveGenerator.PAWN : Math.abs(pos.board[Move.to(move)]);
+        int attacker = Math.abs(pos.board[Move.from(move)]);
+        if (Evaluation.pieceValue(victim) >= Evaluation.pieceValue(attacker)) return false;
+        return !StaticExchange.seeGreaterOrEqual(pos, move, 0);
+    }
+
+    // Killer- og modtræk er stille træk fra søsterknuder; her skal de stadig være stille og lovlige
+    private boolean isUsableQuiet(int move) {
+        if (move == 0 || move == hashMove) return false;
+        if (pos.board[Move.to(move)] != 0 || Move.isEnPassant(move) || Move.promotion(move) != 0) return false;
+        restoreCheckInfo();
+        return pos.isLegal(move);
+    }
+
+    private void restoreCheckInfo() {
+        pos.checkers = checkers;
+        pos.checkMask = checkMask;
+        pos.pinned = pinned;
+    }
+
+    // Bytter trækket med højest score blandt de resterende frem på plads index
+    private int pickBest(int index) {
+        int best = index;
+        for (int j = index + 1; j < end; j++) {
+            if (scores[j] > scores[best]) best = j;
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+}
@@ -0,0 +1,286 @@
+package com.example;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft: tæller alle lovlige trækfølger til en given dybde og sammenligner med kendte tal.
+ * Bruges til at kontrollere trækgeneratoren og make/undo, og til at måle nodes pr. sekund.
+ *
+ * På dybde 1 tælles de lovlige træk uden at udføre dem (bulk counting). Med --hash gemmes
+ * deltræernes antal i en cache nøglet på Zobrist-nøgle og dybde, og med --parallel fordeles
+ * rodtrækkene på alle kerner med fork-join.
+ *
+ * Kørsel:
+ * <pre>
+ *   java com.example.Perft                                  kendte stillinger på begge backends
+ *   java com.example.Perft suite [--parallel] [--hash MB] [--record fil.csv]
+ *   java com.example.Perft [--divide] [--parallel] [--hash MB] "fen" dybde
+ *   mvn -Pperft verify                                      suiten som regressionstest
+ * </pre>
+ */
+public class Perft {
+
+    // FEN, dybde og forventet antal noder (fra chessprogramming.org)
+    private static final Object[][] REFERENCE = {
+            {Position.START_FEN, 5, 4_865_609L},
+            {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4, 4_085_603L},
+            {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674_624L},
+            {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4, 422_333L},
+            {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2_103_487L},
+            {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3_894_594L},
+            {"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", 5, 3_605_103L},
+    };
+
+    private final Cache cache;
+
+    /**
+     * @param hashMegabytes Størrelse på deltræ-cachen i MB, eller 0 for ingen cache
+     */
+    public Perft(int hashMegabytes) {
+        cache = hashMegabytes > 0 ? new Cache(hashMegabytes) : null;
+    }
+
+    public static long perft(Position pos, int depth) {
+        return new Perft(0).count(pos, depth);
+    }
+
+    public long count(Position pos, int depth) {
+        return count(pos, depth, new int[depth + 1][MoveGenerator.MAX_MOVES]);
+    }
+
+    private long count(Position pos, int depth, int[][] buffers) {
+        if (depth == 0) return 1;
+
+        int[] moves = buffers[depth];
+        int count = pos.generateLegalMoves(moves);
+        if (depth == 1) return count; // bulk counting
+
+        if (cache != null) {
+            long cached = cache.get(pos.zobristKey, depth);
+            if (cached >= 0) return cached;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            pos.makeMove(moves[i]);
+            nodes += count(pos, depth - 1, buffers);
+            pos.undoMove(moves[i]);
+        }
+
+        if (cache != null) cache.put(pos.zobristKey, depth, nodes);
+        return nodes;
+    }
+
+    /**
+     * Tæller deltræet under hvert rodtræk. Ved parallel kørsel får hvert rodtræk sin egen
+     * kopi af stillingen og sin egen fork-join-opgave; cachen deles.
+     *
+     * @return Antal noder pr. rodtræk, i samme rækkefølge som de lovlige træk
+     */
+    public long[] divide(Position pos, int depth, boolean parallel, int[] rootMoves) {
+        int count = pos.generateLegalMoves(rootMoves);
+        long[] nodes = new long[count];
+        if (depth <= 0) return nodes;
+
+        if (parallel) {
+            List<RootMoveTask> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(new RootMoveTask(new Position(pos), rootMoves[i], depth - 1));
+            }
+            ForkJoinPool.commonPool().invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                    return null;
+                }
+            });
+            for (int i = 0; i < count; i++) nodes[i] = tasks.get(i).join();
+        } else {
+            int[][] buffers = new int[depth][MoveGenerator.MAX_MOVES];
+            for (int i = 0; i < count; i++) {
+                pos.makeMove(rootMoves[i]);
+                nodes[i] = count(pos, depth - 1, buffers);
+                pos.undoMove(rootMoves[i]);
+            }
+        }
+        return nodes;
+    }
+
+    public long count(Position pos, int depth, boolean parallel) {
+        if (!parallel || depth < 2) return count(pos, depth);
+
+        long total = 0;
+        for (long n : divide(pos, depth, true, new int[MoveGenerator.MAX_MOVES])) total += n;
+        return total;
+    }
+
+    // Serialiseres aldrig; RecursiveTask er blot Serializable
+    @SuppressWarnings("serial")
+    private class RootMoveTask extends RecursiveTask<Long> {
+        private final Position pos;
+        private final int move;
+        private final int depth;
+
+        RootMoveTask(Position pos, int move, int depth) {
+            this.pos = pos;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            pos.makeMove(move);
+            return count(pos, depth);
+        }
+    }
+
+    /**
+     * Kører de kendte stillinger på den valgte backend.
+     *
+     * @param record Fil som resultaterne tilføjes til som CSV, eller null
+     * @return true hvis alle tal passer
+     */
+    public boolean runSuite(boolean bitboards, boolean parallel, String record) {
+        boolean previous = Position.bitboardBackend;
+        Position.bitboardBackend = bitboards;
+        String name = bitboards ? (Bitboards.USE_PEXT ? "bitboard/pext" : "bitboard/magic") : "0x88";
+        if (parallel) name += "/fj";
+        if (cache != null) name += "/hash";
+
+        boolean ok = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+        try (PrintWriter csv = record == null ? null : new PrintWriter(new FileWriter(record, true))) {
+            for (Object[] test : REFERENCE) {
+                Position pos = new Position((String) test[0]);
+                int depth = (int) test[1];
+                long expected = (long) test[2];
+
+                if (cache != null) cache.clear();
+                long start = System.nanoTime();
+                long nodes = count(pos, depth, parallel);
+                long time = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += time;
+
+                boolean match = nodes == expected;
+                ok &= match;
+                System.out.printf("%-22s d%d %,12d %,12d nps %s %s%n", name, depth, nodes, nps(nodes, time),
+                        match ? "OK  " : "FEJL (forventet " + expected + ")", test[0]);
+                if (csv != null) {
+                    csv.printf("%s,%s,\"%s\",%d,%d,%d,%d%n", LocalDateTime.now(), name, test[0], depth, nodes,
+                            time / 1_000_000, nps(nodes, time));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Kunne ikke skrive til " + record + ": " + e.getMessage());
+        } finally {
+            Position.bitboardBackend = previous;
+        }
+
+        System.out.printf("%-22s %,d noder på %d ms = %,d nps%n%n", name, totalNodes, totalTime / 1_000_000,
+                nps(totalNodes, totalTime));
+        return ok;
+    }
+
+    private static long nps(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    public static void main(String[] args) {
+        boolean divide = false;
+        boolean parallel = false;
+        int hash = 0;
+        String record = null;
+        List<String> rest = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--divide" -> divide = true;
+                case "--parallel" -> parallel = true;
+                case "--hash" -> hash = Integer.parseInt(args[++i]);
+                case "--record" -> record = args[++i];
+                default -> rest.add(args[i]);
+            }
+        }
+
+        Perft perft = new Perft(hash);
+
+        if (rest.size() >= 2) {
+            Position pos = new Position(rest.get(0));
+            int depth = Integer.parseInt(rest.get(1));
+            long start = System.nanoTime();
+            long nodes;
+            if (divide) {
+                int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+                long[] counts = perft.divide(pos, depth, parallel, rootMoves);
+                nodes = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    System.out.println(Move.toUci(rootMoves[i]) + ": " + counts[i]);
+                    nodes += counts[i];
+                }
+                System.out.println();
+            } else {
+                nodes = perft.count(pos, depth, parallel);
+            }
+            long time = System.nanoTime() - start;
+            System.out.printf("Noder: %,d  tid: %d ms  nps: %,d%n", nodes, time / 1_000_000, nps(nodes, time));
+            return;
+        }
+
+        boolean ok = perft.runSuite(false, parallel, record) & perft.runSuite(true, parallel, record);
+        System.out.println(ok ? "Alle perft-tal passer på begge backends" : "Perft-fejl fundet!");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Delt cache for deltræernes antal. Samme låsefri XOR-teknik som {@link TranspositionTable}:
+     * en indgang gælder kun hvis (kontrol XOR antal) giver nøglen igen.
+     */
+    private static final class Cache {
+        private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+        private final long[] table;
+        private final int mask;
+
+        Cache(int megabytes) {
+            int entries = Integer.highestOneBit((int) Math.min(1 << 30, megabytes * 1024L * 1024L / 16));
+            table = new long[entries * 2];
+            mask = entries - 1;
+        }
+
+        // Dybden blandes ind i nøglen, så samme stilling på forskellige dybder ikke forveksles
+        private static long key(long zobrist, int depth) {
+            return zobrist ^ (depth * 0x9E3779B97F4A7C15L);
+        }
+
+        long get(long zobrist, int depth) {
+            long key = key(zobrist, depth);
+            int index = (int) (key & mask) * 2;
+            long nodes = (long) LONGS.getOpaque(table, index + 1);
+            long check = (long) LONGS.getOpaque(table, index);
+            return nodes != 0 && (check ^ nodes) == key ? nodes : -1;
+        }
+
+        void put(long zobrist, int depth, long nodes) {
+            long key = key(zobrist, depth);
+            int index = (int) (key & mask) * 2;
+            LONGS.setOpaque(table, index, key ^ nodes);
+            LONGS.setOpaque(table, index + 1, nodes);
+        }
+
+        void clear() {
+            java.util.Arrays.fill(table, 0L);
+        }
+    }
+}
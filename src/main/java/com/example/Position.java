@@ -0,0 +1,717 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * En selvstændig skakstilling: brættet (0x88), tur, en passant-felt, rokaderettigheder og historik.
+ * Al make/undo, trækgenerering, evaluering og søgning arbejder på en instans,
+ * så flere stillinger kan søges samtidigt i samme JVM uden delt, muterbar tilstand.
+ */
+public final class Position {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public final int[] board = new int[128];
+    public boolean isWhiteTurn = true;
+    public int enPassantSquare = -1;
+
+    // Bitboards holdt i takt med brættet: én pr. brik (indeks brik + 6) og belægning pr. farve.
+    // Bit-nummeret er rank * 8 + file (se toBitboardSquare).
+    public final long[] bitboards = new long[13];
+    public long whiteOccupancy = 0L;
+    public long blackOccupancy = 0L;
+
+    /**
+     * Vælger backend til trækgenerering og angrebstjek ved opstart:
+     * -Dchess.backend=bitboard bruger magic bitboards, ellers bruges 0x88-brættet.
+     */
+    public static boolean bitboardBackend = "bitboard".equalsIgnoreCase(System.getProperty("chess.backend"));
+
+    // Rokaderettigheder som 4-bit maske
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public int castlingRights = 0;
+
+    // Halvtræk siden sidste bondetræk eller slag (50-trækreglen)
+    public int halfmoveClock = 0;
+
+    // 64-bit Zobrist-nøgle, holdes opdateret inkrementelt af makeMove/undoMove
+    public long zobristKey = 0L;
+
+    // Materiale og piece-square-sum pr. side ([0] = hvid, [1] = sort), holdt opdateret af putPiece/removePiece
+    public final int[] material = new int[2];
+    public final int[] pieceSquareScore = new int[2];
+
+    // Rettigheder der bevares når der flyttes fra/til et felt; et træk fra eller til
+    // kongens eller et tårns udgangsfelt fjerner de tilhørende rettigheder (også når tårnet slås)
+    private static final int[] castlingMask = new int[128];
+
+    static {
+        Arrays.fill(castlingMask, WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        castlingMask[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        castlingMask[0] &= ~WHITE_QUEENSIDE;
+        castlingMask[7] &= ~WHITE_KINGSIDE;
+        castlingMask[116] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        castlingMask[112] &= ~BLACK_QUEENSIDE;
+        castlingMask[119] &= ~BLACK_KINGSIDE;
+    }
+
+    /**
+     * Slår kontrol af den inkrementelle nøgle til efter hvert make/undo (-Dchess.debugHash=true).
+     * Dyrt - kun til fejlsøgning.
+     */
+    public static boolean debugHashCheck = Boolean.getBoolean("chess.debugHash");
+
+    /**
+     * Kontrollerer materiale- og PST-tællerne mod en fuld genberegning efter hvert make/undo
+     * (-Dchess.debugEval=true). Dyrt - kun til fejlsøgning.
+     */
+    public static boolean debugEvalCheck = Boolean.getBoolean("chess.debugEval");
+
+    // Historikstak indekseret efter ply: den tilstand et træk ikke selv kan genskabe.
+    // historyState pakker slået brik (bit 0-3), en passant-felt + 1 (bit 4-11),
+    // rokaderettigheder (bit 12-15) og halvtræksuret (bit 16-31).
+    private int[] historyState = new int[1024];
+    private long[] historyKey = new long[1024];
+    private int historyPly = 0;
+
+    private final int[] scratchMoves = new int[MoveGenerator.MAX_MOVES];
+    final int[] seeGains = new int[32]; // gevinstliste til StaticExchange.see
+
+    // Brikliste pr. brik (indeks piece + 6): felterne ligger i pieceSquares[(piece + 6) * MAX_PIECES ...],
+    // antallet i pieceCount, og pieceIndex[felt] er brikkens plads i listen, så en brik kan fjernes i O(1)
+    // ved at flytte den sidste i listen ind på dens plads. Kongernes felter ([0] = hvid, [1] = sort) gemmes for sig.
+    static final int MAX_PIECES = 16;
+    final int[] pieceSquares = new int[13 * MAX_PIECES];
+    final int[] pieceCount = new int[13];
+    private final int[] pieceIndex = new int[128];
+    final int[] kingSquares = { -1, -1 };
+    private final AttackMap attackMap = new AttackMap();
+
+    // Beregnes én gang pr. generateLegalMoves og gælder indtil næste træk (bitboard-felter): antal skakgivere, de felter et
+    // ikke-kongetræk skal lande på for at parere skakken (alle felter hvis ingen skak), og bundne brikker
+    int checkers = 0;
+    long checkMask = -1L;
+    long pinned = 0L;
+
+    /**
+     * Opretter et tomt bræt. Brug {@link #loadFEN(String)} for at sætte en stilling op.
+     */
+    public Position() {
+    }
+
+    public Position(String fen) {
+        loadFEN(fen);
+    }
+
+    /**
+     * Kopikonstruktør - giver en uafhængig stilling, fx til en søgetråd.
+     */
+    public Position(Position other) {
+        System.arraycopy(other.board, 0, board, 0, 128);
+        System.arraycopy(other.bitboards, 0, bitboards, 0, bitboards.length);
+        whiteOccupancy = other.whiteOccupancy;
+        blackOccupancy = other.blackOccupancy;
+        isWhiteTurn = other.isWhiteTurn;
+        enPassantSquare = other.enPassantSquare;
+        castlingRights = other.castlingRights;
+        halfmoveClock = other.halfmoveClock;
+        zobristKey = other.zobristKey;
+        System.arraycopy(other.material, 0, material, 0, 2);
+        System.arraycopy(other.pieceSquareScore, 0, pieceSquareScore, 0, 2);
+        System.arraycopy(other.pieceSquares, 0, pieceSquares, 0, pieceSquares.length);
+        System.arraycopy(other.pieceCount, 0, pieceCount, 0, pieceCount.length);
+        System.arraycopy(other.pieceIndex, 0, pieceIndex, 0, 128);
+        System.arraycopy(other.kingSquares, 0, kingSquares, 0, 2);
+        historyState = other.historyState.clone();
+        historyKey = other.historyKey.clone();
+        historyPly = other.historyPly;
+    }
+
+    boolean isInCheck() {
+        boolean whiteToCheck = !isWhiteTurn;  // <- den spiller der lige HAR flyttet
+        int kingSquare = findKingSquare(whiteToCheck);
+
+        if (kingSquare == -1) return true;
+
+        return isSquareAttacked(kingSquare, !whiteToCheck);
+    }
+
+    // Tjek om den aktuelle spiller (den der skal flytte nu) er i skak
+    boolean isCurrentPlayerInCheck() {
+        boolean whiteToCheck = isWhiteTurn;  // Spilleren der skal flytte nu (den, der er i skak, hvis den er truet)
+        int kingSquare = findKingSquare(whiteToCheck);
+
+        if (kingSquare == -1) return true;
+
+        return isSquareAttacked(kingSquare, !whiteToCheck); // Vi tjekker om modstanderen truer kongen
+    }
+
+    /**
+     * Genererer de lovlige træk som int-kodede træk i bufferen (ingen allokering).
+     *
+     * Skakgivere og bindinger beregnes én gang for stillingen; derefter afgøres hvert pseudo-lovligt
+     * træk med et par maskeopslag. Kun en passant (der kan afdække skak langs rækken) prøves med make/undo.
+     *
+     * @param moves Buffer med plads til mindst {@link MoveGenerator#MAX_MOVES} træk
+     * @return Antal lovlige træk
+     */
+    public int generateLegalMoves(int[] moves) {
+        return generateLegalMoves(moves, MoveGenerator.GEN_ALL);
+    }
+
+    /**
+     * Som {@link #generateLegalMoves(int[])}, men kun træk af den givne slags
+     * ({@link MoveGenerator#GEN_TACTICAL} eller {@link MoveGenerator#GEN_QUIET}).
+     */
+    public int generateLegalMoves(int[] moves, int kind) {
+        if (!updateCheckInfo()) return 0;
+        return generateLegalMoves(moves, 0, kind);
+    }
+
+    /**
+     * Beregner skakgivere, skakmaske og bindinger for siden i trækket.
+     *
+     * @return false hvis siden ikke har en konge
+     */
+    boolean updateCheckInfo() {
+        boolean white = isWhiteTurn;
+        int kingSquare = findKingSquare(white);
+        if (kingSquare == -1) return false;
+
+        if (bitboardBackend) BitboardMoveGenerator.computeCheckInfo(this, kingSquare, white);
+        else MoveGenerator.computeCheckInfo(this, kingSquare, white);
+        return true;
+    }
+
+    /**
+     * Skriver de lovlige træk af den givne slags ind i bufferen fra plads start.
+     * Forudsætter at {@link #updateCheckInfo()} er kaldt for stillingen.
+     *
+     * @return Ny længde af bufferen
+     */
+    int generateLegalMoves(int[] moves, int start, int kind) {
+        boolean white = isWhiteTurn;
+        int kingSquare = findKingSquare(white);
+
+        // Dobbeltskak: kun kongen kan flytte
+        int count;
+        if (checkers >= 2) {
+            count = bitboardBackend
+                    ? BitboardMoveGenerator.generateKingMoves(this, moves, start, white, true, kind)
+                    : MoveGenerator.generateKingMoves(this, kingSquare, moves, start, white, true, kind);
+        } else {
+            count = bitboardBackend
+                    ? BitboardMoveGenerator.generateMoves(this, moves, start, checkers != 0, kind)
+                    : MoveGenerator.generateMoves(this, moves, start, checkers != 0, kind);
+        }
+
+        int legal = start;
+        for (int i = start; i < count; i++) {
+            int move = moves[i];
+            if (isLegalPseudoMove(move, kingSquare, white)) {
+                moves[legal++] = move;
+            }
+        }
+
+        return legal;
+    }
+
+    /**
+     * Er et vilkårligt træk (fx fra transpositionstabellen eller en killer-plads) lovligt her?
+     * Trækket genereres for brikken på fra-feltet og skal findes blandt dens træk.
+     * Forudsætter at {@link #updateCheckInfo()} er kaldt for stillingen.
+     */
+    boolean isLegal(int move) {
+        if (move == 0) return false;
+        boolean white = isWhiteTurn;
+        int from = Move.from(move);
+        int piece = board[from];
+        if (piece == 0 || (piece > 0) != white) return false;
+
+        int type = Math.abs(piece);
+        if (checkers >= 2 && type != MoveGenerator.KING) return false;
+
+        int count = MoveGenerator.generatePieceMoves(this, from, type, scratchMoves, 0, white, checkers != 0,
+                MoveGenerator.GEN_ALL);
+        for (int i = 0; i < count; i++) {
+            if (scratchMoves[i] == move) return isLegalPseudoMove(move, findKingSquare(white), white);
+        }
+        return false;
+    }
+
+    private boolean isLegalPseudoMove(int move, int kingSquare, boolean white) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        if (from == kingSquare) {
+            // Rokadens felter er allerede tjekket af generatoren
+            return Move.isCastle(move) || !isKingDestinationAttacked(kingSquare, to, white);
+        }
+        if (Move.isEnPassant(move)) {
+            makeMove(move);
+            boolean legal = !isInCheck();
+            undoMove(move);
+            return legal;
+        }
+        long toBit = 1L << toBitboardSquare(to);
+        return (checkMask & toBit) != 0
+                && ((pinned & (1L << toBitboardSquare(from))) == 0
+                || (Bitboards.LINE[toBitboardSquare(kingSquare)][toBitboardSquare(from)] & toBit) != 0);
+    }
+
+    // I skak fjernes kongen midlertidigt, så en langtrækkende skakgiver også "ser" felterne bag den
+    private boolean isKingDestinationAttacked(int kingSquare, int to, boolean white) {
+        if (checkers == 0) return isSquareAttacked(to, !white);
+
+        int king = removePiece(kingSquare);
+        boolean attacked = isSquareAttacked(to, !white);
+        putPiece(kingSquare, king);
+        return attacked;
+    }
+
+    public List<Move> generateLegalMoves() {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = generateLegalMoves(moves);
+        List<Move> legalMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            legalMoves.add(Move.decode(moves[i]));
+        }
+        return legalMoves;
+    }
+
+    public int countLegalMoves() {
+        return generateLegalMoves(scratchMoves);
+    }
+
+    public void changeTurn() {
+        isWhiteTurn = !isWhiteTurn;
+        zobristKey ^= Zobrist.sideToMove;
+    }
+
+    // Omregning mellem 0x88-felt (rank * 16 + file) og bitboard-felt (rank * 8 + file)
+    public static int toBitboardSquare(int square) {
+        return (square + (square & 7)) >> 1;
+    }
+
+    public static int toBoardSquare(int bitSquare) {
+        return bitSquare + (bitSquare & ~7);
+    }
+
+    public boolean canCastle(int right) {
+        return (castlingRights & right) != 0;
+    }
+
+    /**
+     * Antal træk udført siden stillingen blev sat op (indeks i historikstakken).
+     */
+    public int getHistoryPly() {
+        return historyPly;
+    }
+
+    /**
+     * Sammenligner den inkrementelle nøgle med en fuld genberegning.
+     *
+     * @throws IllegalStateException hvis de to nøgler er forskellige
+     */
+    public void verifyZobristKey() {
+        long expected = Zobrist.compute(this);
+        if (zobristKey != expected) {
+            throw new IllegalStateException("Zobrist key out of sync: incremental=" +
+                    Long.toHexString(zobristKey) + " recomputed=" + Long.toHexString(expected));
+        }
+    }
+
+    /**
+     * Sammenligner materiale- og PST-tællerne og briklisterne med en fuld genberegning.
+     *
+     * @throws IllegalStateException hvis de er forskellige
+     */
+    public void verifyIncrementalScores() {
+        int[] expectedMaterial = new int[2];
+        int[] expectedPst = new int[2];
+        Evaluation.computeMaterialAndPst(this, expectedMaterial, expectedPst);
+        if (!Arrays.equals(material, expectedMaterial) || !Arrays.equals(pieceSquareScore, expectedPst)) {
+            throw new IllegalStateException("Incremental scores out of sync: material=" + Arrays.toString(material) +
+                    " expected " + Arrays.toString(expectedMaterial) + ", pst=" + Arrays.toString(pieceSquareScore) +
+                    " expected " + Arrays.toString(expectedPst));
+        }
+
+        for (int piece = -MoveGenerator.KING; piece <= MoveGenerator.KING; piece++) {
+            if (piece == 0) continue;
+            if (pieceCount[piece + 6] != Long.bitCount(bitboards[piece + 6])) {
+                throw new IllegalStateException("Piece list out of sync for piece " + piece + ": count=" +
+                        pieceCount[piece + 6] + " expected " + Long.bitCount(bitboards[piece + 6]));
+            }
+            for (int i = 0; i < pieceCount[piece + 6]; i++) {
+                int square = pieceSquares[(piece + 6) * MAX_PIECES + i];
+                if (board[square] != piece || pieceIndex[square] != i) {
+                    throw new IllegalStateException("Piece list out of sync at " + MoveGenerator.squareToCoord(square));
+                }
+            }
+        }
+    }
+
+    /**
+     * Angrebskortet for stillingen som den står nu; beregnes først her, hvis et træk har gjort det forældet.
+     * Trækgeneratoren bruger ikke kortet, men {@link #isSquareAttacked}, som kun ser på det ene felt.
+     */
+    public AttackMap attackMap() {
+        if (!attackMap.valid) attackMap.compute(this);
+        return attackMap;
+    }
+
+    // Som efter et træk: næste attackMap() beregner kortet forfra. Bruges af benchmarks
+    void invalidateAttackMap() {
+        attackMap.valid = false;
+    }
+
+    public boolean isSquareAttacked(int square, boolean byWhite) {
+        if (bitboardBackend) return BitboardMoveGenerator.isSquareAttacked(this, square, byWhite);
+
+        // Modstanderens brikker fra briklisterne, hver testet med ét opslag i 0x88-angrebstabellen
+        int sign = byWhite ? 1 : -1;
+        for (int type = MoveGenerator.PAWN; type <= MoveGenerator.KING; type++) {
+            int base = (sign * type + 6) * MAX_PIECES;
+            for (int n = pieceCount[sign * type + 6] - 1; n >= 0; n--) {
+                if (MoveGenerator.canPieceReachSquare(pieceSquares[base + n], square, type, byWhite, board)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int findKingSquare(boolean white) {
+        return kingSquares[white ? 0 : 1];
+    }
+
+    public void loadFEN(String fen) {
+        String[] parts = fen.split(" ");
+        String boardPart = parts[0];
+
+        for (int i = 0; i < 128; i++) {
+            if ((i & 0x88) == 0) board[i] = 0;
+        }
+        Arrays.fill(bitboards, 0L);
+        whiteOccupancy = 0L;
+        blackOccupancy = 0L;
+        Arrays.fill(material, 0);
+        Arrays.fill(pieceSquareScore, 0);
+        Arrays.fill(pieceCount, 0);
+        kingSquares[0] = kingSquares[1] = -1;
+        attackMap.valid = false;
+
+        int i = 0;
+        for (int rank = 7; rank >= 0; rank--) {
+            int file = 0;
+            while (file < 8) {
+                char c = boardPart.charAt(i++);
+                if (c == '/') continue;
+
+                int sq = rank * 16 + file;
+
+                if (Character.isDigit(c)) {
+                    file += c - '0';
+                } else {
+                    putPiece(sq, pieceFromChar(c));
+                    file++;
+                }
+            }
+        }
+
+        isWhiteTurn = parts[1].equals("w");
+
+        String castling = parts[2];
+        castlingRights = 0;
+        if (castling.contains("K")) castlingRights |= WHITE_KINGSIDE;
+        if (castling.contains("Q")) castlingRights |= WHITE_QUEENSIDE;
+        if (castling.contains("k")) castlingRights |= BLACK_KINGSIDE;
+        if (castling.contains("q")) castlingRights |= BLACK_QUEENSIDE;
+
+        if (parts.length > 3 && !parts[3].equals("-")) {
+            String ep = parts[3];
+            int file = ep.charAt(0) - 'a';
+            int rank = Character.getNumericValue(ep.charAt(1)) - 1;
+            enPassantSquare = rank * 16 + file;
+        } else {
+            enPassantSquare = -1;
+        }
+
+        halfmoveClock = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+        historyPly = 0;
+
+        zobristKey = Zobrist.compute(this);
+    }
+
+    private static int pieceFromChar(char c) {
+        return switch (c) {
+            case 'K' -> 6;
+            case 'Q' -> 5;
+            case 'R' -> 4;
+            case 'B' -> 3;
+            case 'N' -> 2;
+            case 'P' -> 1;
+            case 'k' -> -6;
+            case 'q' -> -5;
+            case 'r' -> -4;
+            case 'b' -> -3;
+            case 'n' -> -2;
+            case 'p' -> -1;
+            default -> 0;
+        };
+    }
+
+    public int makeMove(Move move) {
+        return makeMove(move.encoded());
+    }
+
+    public void undoMove(Move move, int captured) {
+        undoMove(move.encoded());
+    }
+
+    public void undoMove(Move move) {
+        undoMove(move.encoded());
+    }
+
+    // Sætter en brik på et tomt felt og holder bitboards, materiale, PST og briklister opdateret
+    private void putPiece(int square, int piece) {
+        board[square] = piece;
+        attackMap.valid = false;
+        long bit = 1L << toBitboardSquare(square);
+        bitboards[piece + 6] |= bit;
+        int side = piece > 0 ? 0 : 1;
+        if (piece > 0) whiteOccupancy |= bit;
+        else blackOccupancy |= bit;
+        material[side] += Evaluation.pieceValue(piece);
+        pieceSquareScore[side] += Evaluation.pieceSquareValue(piece, square);
+
+        int index = pieceCount[piece + 6]++;
+        pieceSquares[(piece + 6) * MAX_PIECES + index] = square;
+        pieceIndex[square] = index;
+        if (piece == MoveGenerator.KING || piece == -MoveGenerator.KING) kingSquares[side] = square;
+    }
+
+    // Fjerner brikken fra et felt og returnerer den
+    private int removePiece(int square) {
+        int piece = board[square];
+        board[square] = 0;
+        attackMap.valid = false;
+        long bit = 1L << toBitboardSquare(square);
+        bitboards[piece + 6] &= ~bit;
+        int side = piece > 0 ? 0 : 1;
+        if (piece > 0) whiteOccupancy &= ~bit;
+        else blackOccupancy &= ~bit;
+        material[side] -= Evaluation.pieceValue(piece);
+        pieceSquareScore[side] -= Evaluation.pieceSquareValue(piece, square);
+
+        int base = (piece + 6) * MAX_PIECES;
+        int last = pieceSquares[base + --pieceCount[piece + 6]];
+        pieceSquares[base + pieceIndex[square]] = last;
+        pieceIndex[last] = pieceIndex[square];
+        if (piece == MoveGenerator.KING || piece == -MoveGenerator.KING) kingSquares[side] = -1;
+        return piece;
+    }
+
+    // Flytter en brik til et tomt felt. Brikken beholder sin plads i briklisten, så trækkene genereres
+    // i samme rækkefølge efter make/undo
+    private void movePiece(int from, int to) {
+        int piece = board[from];
+        board[from] = 0;
+        board[to] = piece;
+        attackMap.valid = false;
+
+        long bits = (1L << toBitboardSquare(from)) | (1L << toBitboardSquare(to));
+        bitboards[piece + 6] ^= bits;
+        int side = piece > 0 ? 0 : 1;
+        if (piece > 0) whiteOccupancy ^= bits;
+        else blackOccupancy ^= bits;
+        pieceSquareScore[side] += Evaluation.pieceSquareValue(piece, to) - Evaluation.pieceSquareValue(piece, from);
+
+        int index = pieceIndex[from];
+        pieceSquares[(piece + 6) * MAX_PIECES + index] = to;
+        pieceIndex[to] = index;
+        if (piece == MoveGenerator.KING || piece == -MoveGenerator.KING) kingSquares[side] = to;
+    }
+
+    /**
+     * Udfører et int-kodet træk. Tilstanden der ikke kan genskabes fra trækket lægges på historikstakken.
+     *
+     * @return Den slåede brik (0 hvis intet slag)
+     */
+    public int makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int promotion = Move.promotion(move);
+        int movedPiece = board[from];
+        int captured = 0;
+        long key = zobristKey;
+
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+
+        if (Move.isEnPassant(move)) {
+            int epPawnSquare = to + (movedPiece > 0 ? -16 : 16);
+            captured = removePiece(epPawnSquare);
+            key ^= Zobrist.piece(captured, epPawnSquare);
+        } else if (board[to] != 0) {
+            captured = removePiece(to);
+            key ^= Zobrist.piece(captured, to);
+        }
+
+        if (historyPly == historyState.length) {
+            historyState = Arrays.copyOf(historyState, historyPly * 2);
+            historyKey = Arrays.copyOf(historyKey, historyPly * 2);
+        }
+        historyState[historyPly] = (captured + 6) | ((enPassantSquare + 1) << 4)
+                | (castlingRights << 12) | (Math.min(halfmoveClock, 0xFFFF) << 16);
+        historyKey[historyPly] = zobristKey;
+        historyPly++;
+
+        // Bondeforvandling: den forvandlede brik lander på destinationsfeltet
+        int placedPiece = movedPiece;
+        if (promotion != 0) {
+            placedPiece = movedPiece > 0 ? promotion : -promotion;
+        }
+
+        if (promotion != 0) {
+            removePiece(from);
+            putPiece(to, placedPiece);
+        } else {
+            movePiece(from, to);
+        }
+        key ^= Zobrist.piece(movedPiece, from) ^ Zobrist.piece(placedPiece, to);
+
+        if (Math.abs(movedPiece) == MoveGenerator.PAWN && Math.abs(to - from) == 32) {
+            enPassantSquare = (from + to) / 2;
+        } else {
+            enPassantSquare = -1;
+        }
+
+        if (Math.abs(movedPiece) == MoveGenerator.PAWN || captured != 0) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+
+        castlingRights &= castlingMask[from] & castlingMask[to];
+
+        // Rokade: tårnet står 3 felter til højre (kort) eller 4 til venstre (lang) for kongen
+        if (Move.isCastle(move)) {
+            boolean kingside = (move & Move.CASTLE_KINGSIDE) != 0;
+            int rookFrom = kingside ? from + 3 : from - 4;
+            int rookTo = kingside ? from + 1 : from - 1;
+            int rook = board[rookFrom];
+            movePiece(rookFrom, rookTo);
+            key ^= Zobrist.piece(rook, rookFrom) ^ Zobrist.piece(rook, rookTo);
+        }
+
+        isWhiteTurn = !isWhiteTurn;
+
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.sideToMove;
+        zobristKey = key;
+
+        if (debugHashCheck) verifyZobristKey();
+        if (debugEvalCheck) verifyIncrementalScores();
+
+        return captured;
+    }
+
+    /**
+     * Tager det seneste træk tilbage ved at hente tilstanden fra historikstakken.
+     * Skal kaldes med samme træk som det sidste makeMove.
+     */
+    public void undoMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        historyPly--;
+        int state = historyState[historyPly];
+        int captured = (state & 0xF) - 6;
+
+        int piece;
+        if (Move.promotion(move) != 0) {
+            piece = removePiece(to) > 0 ? MoveGenerator.PAWN : -MoveGenerator.PAWN;
+            putPiece(from, piece);
+        } else {
+            piece = board[to];
+            movePiece(to, from);
+        }
+
+        if (captured != 0) {
+            putPiece(Move.isEnPassant(move) ? to + (piece > 0 ? -16 : 16) : to, captured);
+        }
+
+        if (Move.isCastle(move)) {
+            boolean kingside = (move & Move.CASTLE_KINGSIDE) != 0;
+            movePiece(kingside ? from + 1 : from - 1, kingside ? from + 3 : from - 4);
+        }
+
+        enPassantSquare = ((state >>> 4) & 0xFF) - 1;
+        castlingRights = (state >>> 12) & 0xF;
+        halfmoveClock = state >>> 16;
+        zobristKey = historyKey[historyPly];
+        isWhiteTurn = !isWhiteTurn;
+
+        if (debugHashCheck) verifyZobristKey();
+        if (debugEvalCheck) verifyIncrementalScores();
+    }
+
+    /**
+     * Giver trækket videre uden at flytte (null move, bruges af søgningens null-move pruning).
+     * En passant-retten forsvinder; tilstanden gemmes på historikstakken som ved et normalt træk.
+     */
+    public void makeNullMove() {
+        if (historyPly == historyState.length) {
+            historyState = Arrays.copyOf(historyState, historyPly * 2);
+            historyKey = Arrays.copyOf(historyKey, historyPly * 2);
+        }
+        historyState[historyPly] = 6 | ((enPassantSquare + 1) << 4)
+                | (castlingRights << 12) | (Math.min(halfmoveClock, 0xFFFF) << 16);
+        historyKey[historyPly] = zobristKey;
+        historyPly++;
+
+        zobristKey ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.sideToMove;
+        enPassantSquare = -1;
+        halfmoveClock++;
+        isWhiteTurn = !isWhiteTurn;
+
+        if (debugHashCheck) verifyZobristKey();
+    }
+
+    public void undoNullMove() {
+        historyPly--;
+        int state = historyState[historyPly];
+        enPassantSquare = ((state >>> 4) & 0xFF) - 1;
+        halfmoveClock = state >>> 16;
+        zobristKey = historyKey[historyPly];
+        isWhiteTurn = !isWhiteTurn;
+    }
+
+    /**
+     * @return true hvis siden har andet end bønder og konge (så er null move sjældent zugzwang)
+     */
+    public boolean hasNonPawnMaterial(boolean white) {
+        int sign = white ? 1 : -1;
+        for (int type = MoveGenerator.KNIGHT; type <= MoveGenerator.QUEEN; type++) {
+            if (pieceCount[sign * type + 6] != 0) return true;
+        }
+        return false;
+    }
+
+    public boolean isStalemate() {
+        return countLegalMoves() == 0 && checkers == 0;
+    }
+
+    // Spilleren i trækket er mat; checkers er sat af generateLegalMoves
+    public boolean isCheckmate() {
+        return countLegalMoves() == 0 && checkers != 0;
+    }
+
+    public boolean isDrawByStalemate() {
+        return generateLegalMoves().isEmpty() && !isCurrentPlayerInCheck();
+    }
+}
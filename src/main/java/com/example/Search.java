@@ -1,9 +1,111 @@
 package com.example;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Search {
+    // Maksimal søgedybde inkl. quiescence; bestemmer størrelsen på trækbufferne
+    public static final int MAX_PLY = 128;
+
+    // Mat om n halvtræk fra roden scores MATE_SCORE - n (set fra den der giver mat); alt ud over
+    // MATE_BOUND er altså en mat-score. I tabellen gemmes afstanden fra knuden i stedet for fra roden.
+    public static final int MATE_SCORE = 1_000_000;
+    public static final int MATE_BOUND = MATE_SCORE - MAX_PLY;
+
+    // Større end enhver score; bruges som uendeligt vindue, så negation aldrig løber over
+    static final int INFINITY = MATE_SCORE + 1;
+
+    // Aspiration windows: halvbredde af det første vindue omkring forrige iterations score, og fra hvilken dybde
+    static final int ASPIRATION_WINDOW = 100;
+    static final int ASPIRATION_DEPTH = 4;
+
+    private final Position pos;
+    private final TranspositionTable tt;
+
+    // Forhåndsallokerede træk- og scorebuffere pr. ply, så søgningen ikke allokerer objekter
+    private final int[][] moveBuffers = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+
+    // Triangulær PV-tabel: række p holder variationen fra ply p, pvLength[p] er hvor den slutter
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private int ply = 0;
+
+    // Sættes når tiden løber ud midt i et træ; så må ufuldstændige scorer ikke gemmes i tabellen,
+    // og den igangværende iteration skal kasseres af kalderen
+    private boolean timeUp = false;
+
+    // Sættes fra en anden tråd (Lazy SMP) for at afbryde søgningen på samme måde som når tiden løber ud
+    private volatile boolean stopRequested = false;
+
+    // Tidsstyring; uret læses kun hver TimeManager.POLL_NODES gang, stopflaget hver gang.
+    // Knuder hentes fra tidsstyringens fælles budget NODE_BATCH ad gangen; nodeAllowance er hvor langt
+    // nodes må nå, før der skal hentes flere
+    private static final int NODE_BATCH = 1024;
+    private TimeManager timeManager = TimeManager.infinite();
+    private long nodeAllowance = 0;
+    private int pollCounter = 0;
+
+    // Antal besøgte knuder (alphaBeta + quiescence), til nodes pr. sekund
+    private long nodes = 0;
+
+    // Score (set fra hvid) og træk fra seneste searchRoot, og antal gange et aspiration-vindue måtte udvides
+    private int rootScore = 0;
+    private int rootBestMove = 0;
+    private long aspirationResearches = 0;
+
+    // Ordning af stille træk: to killer-træk pr. ply, historik pr. side/fra/til (de nederste 14 bit af trækket)
+    // og modtrækket til modstanderens forrige træk. Slås fra med -Dchess.ordering=false til sammenligning.
+    static boolean orderingHeuristics = !"false".equals(System.getProperty("chess.ordering"));
+    private static final int HISTORY_MAX = 200_000;
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[] history = new int[2 << 14];
+    private final int[] counterMoves = new int[1 << 14];
+    private final int[] playedMoves = new int[MAX_PLY];
+
+    // Delta pruning i quiescence: sikkerhedsmargin for positionelle forskelle ud over materialet
+    private static final int DELTA_MARGIN = 200;
+
+    // Selektiv søgning. Hver del kan slås fra hver for sig (fx -Dchess.lmr=false) for at måle dens effekt.
+    static boolean nullMovePruning = enabled("chess.nullMove");
+    static boolean lateMoveReductions = enabled("chess.lmr");
+    static boolean reverseFutilityPruning = enabled("chess.reverseFutility");
+    static boolean futilityPruning = enabled("chess.futility");
+    static boolean checkExtensions = enabled("chess.checkExtensions");
+
+    // Reverse futility: margin pr. resterende ply; futility: margin for dybde 1, 2 og 3
+    private static final int REVERSE_FUTILITY_MARGIN = 120;
+    private static final int REVERSE_FUTILITY_DEPTH = 3;
+    private static final int[] FUTILITY_MARGIN = { 0, 150, 300, 450 };
+
+    // Reduktion for sene træk, slået op efter [dybde][trækindeks]; vokser med logaritmen af begge
+    private static final int[][] LMR_REDUCTION = new int[64][64];
+
+    static {
+        for (int depth = 1; depth < 64; depth++) {
+            for (int moveCount = 1; moveCount < 64; moveCount++) {
+                LMR_REDUCTION[depth][moveCount] = (int) (0.75 + Math.log(depth) * Math.log(moveCount) / 2.25);
+            }
+        }
+    }
+
+    // Beta-cutoffs i alphaBeta, og hvor mange af dem kom på første træk (et mål for trækordningen)
+    private long cutoffs = 0;
+    private long firstMoveCutoffs = 0;
+
+    /**
+     * Opretter en søger der arbejder på den givne stilling.
+     * Hver tråd bør have sin egen stilling og sin egen Search; tabellen må gerne deles.
+     */
+    public Search(Position pos, TranspositionTable tt) {
+        this.pos = pos;
+        this.tt = tt;
+        for (int i = 0; i < MAX_PLY; i++) {
+            pickers[i] = new MovePicker(pos, moveBuffers[i], scoreBuffers[i]);
+        }
+    }
+
     /**
      * Sorterer træk efter deres forventede værdi.
      * Prioriterer slag med positiv materielforskel højest.
@@ -12,8 +114,34 @@ public class Search {
      * @param moves Listen af træk der skal sorteres
      * @return Sorteret liste med "mest lovende" træk først
      */
-    public static void sortMoves(List<Move> moves) {
-        moves.sort((a, b) -> Integer.compare(moveScore(b), moveScore(a)));
+    public void sortMoves(List<Move> moves) {
+        sortMoves(moves, 0);
+    }
+
+    /**
+     * Som {@link #sortMoves(List)}, men lægger hash-trækket fra transpositionstabellen forrest.
+     *
+     * @param hashMove Det pakkede træk fra tabellen, eller 0
+     */
+    public void sortMoves(List<Move> moves, int hashMove) {
+        // Scorerne beregnes én gang pr. træk, ikke i sammenligningen
+        int count = moves.size();
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = moveScore(moves.get(i), hashMove);
+        }
+        for (int i = 1; i < count; i++) {
+            Move move = moves.get(i);
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves.set(j + 1, moves.get(j));
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves.set(j + 1, move);
+            scores[j + 1] = score;
+        }
     }
 
     /**
@@ -23,16 +151,68 @@ public class Search {
      * @param move Trækket der skal evalueres
      * @return En numerisk score, hvor højere tal = bedre træk for move-ordering
      */
-    private static int moveScore(Move move) {
-        int fromPiece = Game.board[move.from];
-        int toPiece = Game.board[move.to];
+    private int moveScore(Move move, int hashMove) {
+        return moveScore(move.encoded(), hashMove);
+    }
+
+    private int moveScore(int move, int hashMove) {
+        if (move == hashMove) {
+            return 1_000_000;
+        }
 
-        if (toPiece != 0) {
-            int see = Evaluation.staticExchangeEval(move.to, move.from);
-            return 1000 + see; // prioriter stærke captures
+        int to = Move.to(move);
+        if (pos.board[to] != 0 || Move.isEnPassant(move)) {
+            int see = StaticExchange.see(pos, move);
+            // Tabende slag kommer efter de stille træk
+            return see >= 0 || !orderingHeuristics ? 500_000 + see : -100_000 + see;
         }
+        if (!orderingHeuristics) return 0;
+
+        if (Move.promotion(move) != 0) return 450_000 + Move.promotion(move);
+        int[] killer = killers[ply];
+        if (move == killer[0]) return 400_000;
+        if (move == killer[1]) return 399_000;
+        if (move == counterMove()) return 398_000;
+        return history[historyIndex(move)];
+    }
 
-        return 0; // Ikke-capture
+    private int historyIndex(int move) {
+        return (pos.isWhiteTurn ? 0 : 1 << 14) | (move & 0x3FFF);
+    }
+
+    // Et stille træk gav beta-cutoff: husk det som killer, i historikken (vægtet med dybden) og som modtræk
+    private void updateQuietCutoff(int move, int depth) {
+        int[] killer = killers[ply];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+
+        int index = historyIndex(move);
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_MAX) ageHistory();
+
+        int previous = previousMove();
+        if (previous != 0) counterMoves[previous & 0x3FFF] = move;
+    }
+
+    // Trækket der førte hertil, eller 0 ved roden og efter et null move
+    private int previousMove() {
+        return ply > 0 ? playedMoves[ply - 1] : 0;
+    }
+
+    // Modtrækket til det forrige træk; et null move har intet modtræk
+    private int counterMove() {
+        int previous = previousMove();
+        return previous != 0 ? counterMoves[previous & 0x3FFF] : 0;
+    }
+
+    /**
+     * Halverer historikken, så nyere cutoffs vejer mest. Kaldes mellem iterationerne
+     * og når en indgang når loftet.
+     */
+    public void ageHistory() {
+        for (int i = 0; i < history.length; i++) history[i] >>= 1;
     }
 
 
@@ -40,68 +220,94 @@ public class Search {
      * Quiescence-søgning forhindrer horisonteffekten ved at fortsætte søgningen
      * ved ustabile positioner (især slag) indtil stillingen er "rolig".
      *
+     * Kun taktiske træk (slag, en passant og forvandlinger) genereres; stille træk koster ikke noget her.
+     * Slag der taber materiale ifølge SEE springes over, og det samme gør slag der ikke kan bringe
+     * stand pat op til alpha, selv med en margin (delta pruning). Står siden i skak, er stand pat ikke
+     * tilladt: så søges alle lovlige træk ud af skakken, og ingen træk betyder mat.
+     *
+     * Negamax: alpha, beta og resultatet er set fra siden i trækket.
+     *
      * @param alpha Alpha-værdi for pruning
      * @param beta Beta-værdi for pruning
-     * @param maximizingPlayer Om den aktuelle spiller maksimerer (hvid) eller minimerer (sort)
      * @return Evaluering af stillingen når den er "rolig"
      */
-    public static int quiescence(int alpha, int beta, boolean maximizingPlayer, long startTime, long timeLimit) {
+    private int quiescence(int alpha, int beta) {
+        nodes++;
+        pvLength[ply] = ply;
+
         // Tidstjek i quiescence
-        if (System.currentTimeMillis() - startTime > timeLimit) {
-            return Evaluation.evaluatePosition();
+        if (outOfTime()) {
+            return evaluate();
         }
 
-        int standPat = Evaluation.evaluatePosition();
+        if (ply >= MAX_PLY - 1 || !pos.updateCheckInfo()) return evaluate();
+
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        boolean inCheck = pos.checkers != 0;
+        int standPat = 0;
+        int count;
 
-        if (maximizingPlayer) {
+        if (inCheck) {
+            // Skakparader: alle lovlige træk, slag først
+            count = pos.generateLegalMoves(moves, 0, MoveGenerator.GEN_ALL);
+            if (count == 0) return terminalScore();
+        } else {
+            standPat = evaluate();
             if (standPat >= beta) return beta;
             if (alpha < standPat) alpha = standPat;
-        } else {
-            if (standPat <= alpha) return alpha;
-            if (beta > standPat) beta = standPat;
+
+            count = pos.generateLegalMoves(moves, 0, MoveGenerator.GEN_TACTICAL);
         }
 
-        List<Move> allMoves = Game.generateLegalMoves();
-        List<Move> captures = new ArrayList<>();
-        for (Move m : allMoves) {
-            if (Game.board[m.to] != 0) captures.add(m);
+        for (int i = 0; i < count; i++) {
+            scores[i] = captureGain(moves[i]) == 0 ? 0
+                    : 1000 + MovePicker.MVV_LVA[capturedType(moves[i])][Math.abs(pos.board[Move.from(moves[i])])];
         }
 
+        for (int i = 0; i < count; i++) {
+            // Tidstjek mellem captures
+            if (outOfTime()) break;
 
-        captures.sort((a, b) -> {
-            int aValue = Math.abs(Evaluation.getPieceValue(Game.board[a.to])) - Math.abs(Evaluation.getPieceValue(Game.board[a.from]));
-            int bValue = Math.abs(Evaluation.getPieceValue(Game.board[b.to])) - Math.abs(Evaluation.getPieceValue(Game.board[b.from]));
-            return Integer.compare(bValue, aValue); // højeste forskel først
-        });
+            int move = pickBest(moves, scores, i, count);
 
-        for (Move move : captures) {
-            // Tidstjek mellem captures
-            if (System.currentTimeMillis() - startTime > timeLimit) {
-                break;
-            }
+            if (!inCheck) {
+                // Delta pruning: selv med den slagne brik og en margin kommer vi ikke op til alpha
+                if (standPat + captureGain(move) + DELTA_MARGIN <= alpha) continue;
 
-            int see = Evaluation.staticExchangeEval(move.to, move.from);
-            if (see < 0) continue; // Skip "bad" captures
+                if (!StaticExchange.seeGreaterOrEqual(pos, move, 0)) continue; // Skip "bad" captures
+            }
 
-            int captured = Game.makeMove(move);
-            int score = quiescence(alpha, beta, !maximizingPlayer, startTime, timeLimit);
-            Game.undoMove(move, captured);
+            makeMove(move);
+            int score = -quiescence(-beta, -alpha);
+            undoMove(move);
 
-            if (maximizingPlayer) {
-                if (score > alpha) alpha = score;
+            if (score > alpha) {
+                alpha = score;
+                updatePv(move);
                 if (alpha >= beta) break;
-            } else {
-                if (score < beta) beta = score;
-                if (beta <= alpha) break;
             }
         }
 
-        return maximizingPlayer ? alpha : beta;
+        return alpha;
+    }
+
+    // Briktypen trækket slår (bonde ved en passant), eller 0
+    private int capturedType(int move) {
+        return Move.isEnPassant(move) ? MoveGenerator.PAWN : Math.abs(pos.board[Move.to(move)]);
+    }
+
+    // Materiale trækket højst kan vinde: den slagne brik plus forvandlingens merværdi
+    private int captureGain(int move) {
+        int gain = Evaluation.pieceValue(capturedType(move));
+        int promotion = Move.promotion(move);
+        if (promotion != 0) gain += Evaluation.pieceValue(promotion) - Evaluation.pieceValue(MoveGenerator.PAWN);
+        return gain;
     }
 
     /**
-     * Alpha-beta pruning algoritme for effektiv søgning.
-     * Bruger move-ordering for at optimere beskæringer.
+     * Alpha-beta søgning af stillingen, med scorer set fra hvid som resten af motoren
+     * (hvid maksimerer, sort minimerer). Selve søgningen er negamax; her oversættes vinduet.
      *
      * @param depth Resterende søgedybde
      * @param alpha Alpha-værdi for pruning
@@ -109,64 +315,431 @@ public class Search {
      * @param maximizingPlayer Om den aktuelle spiller maksimerer (hvid) eller minimerer (sort)
      * @return Bedste score for den aktuelle spiller
      */
-    public static int alphaBeta(int depth, int alpha, int beta, boolean maximizingPlayer, long startTime, long timeLimit) {
+    public int alphaBeta(int depth, int alpha, int beta, boolean maximizingPlayer) {
+        // Vinduer helt uden for scoreområdet kan ikke rammes; uden dette ville -Integer.MIN_VALUE løbe over
+        if (alpha >= INFINITY) return INFINITY;
+        if (beta <= -INFINITY) return -INFINITY;
+        alpha = Math.max(alpha, -INFINITY);
+        beta = Math.min(beta, INFINITY);
+
+        if (maximizingPlayer) return negamax(depth, alpha, beta);
+        return -negamax(depth, -beta, -alpha);
+    }
+
+    /**
+     * Principal variation search: første træk søges med hele vinduet, de øvrige med et nulvindue
+     * omkring alpha, som kun skal vise at trækket ikke er bedre. Fejler det, søges trækket igen
+     * med hele vinduet. Med god trækordning er de fleste nulvinduessøgninger langt billigere.
+     *
+     * Selektivitet uden for PV-knuderne: reverse futility og null move giver cutoff før trækkene
+     * genereres, stille træk nær bladene springes over når de ikke kan nå alpha (futility), og sene
+     * stille træk søges først med reduceret dybde (LMR). En side i skak søges ét ply dybere.
+     *
+     * @return Score set fra siden i trækket
+     */
+    private int negamax(int depth, int alpha, int beta) {
+        pvLength[ply] = ply;
+
         // Tidstjek
-        if (System.currentTimeMillis() - startTime > timeLimit) {
-            return Evaluation.evaluatePosition();
+        if (outOfTime()) {
+            return evaluate();
         }
 
+        if (ply >= MAX_PLY - 1 || !pos.updateCheckInfo()) return evaluate();
+        boolean inCheck = pos.checkers != 0;
+
+        // Skakforlængelse: en skak løses altid, før stillingen vurderes
+        if (inCheck && checkExtensions) depth++;
+
         // Basetilfælde
-        if (depth == 0) {
-            return quiescence(alpha, beta, maximizingPlayer, startTime, timeLimit);
+        if (depth <= 0) {
+            return quiescence(alpha, beta);
         }
 
-        // Generer og sortér træk (move ordering)
-        List<Move> moves = Game.generateLegalMoves();
-        sortMoves(moves);
+        // Mate distance pruning: ingen score herfra kan være bedre end mat i næste træk
+        // eller værre end at blive sat mat her, så vinduet kan indsnævres til det
+        if (ply > 0) {
+            alpha = Math.max(alpha, -MATE_SCORE + ply);
+            beta = Math.min(beta, MATE_SCORE - ply);
+            if (alpha >= beta) return alpha;
+        }
 
-        if (maximizingPlayer) {
-            int maxEval = Integer.MIN_VALUE;
-            for (Move move : moves) {
-                // Tidstjek mellem træk
-                if (System.currentTimeMillis() - startTime > timeLimit) {
-                    break;
+        nodes++;
+
+        // Slå stillingen op: en dyb nok indgang kan give cutoff, ellers bruges trækket til ordering.
+        // I PV-knuder (bredt vindue) giver tabellen ikke cutoff, så variationen ikke klippes af.
+        boolean pvNode = beta - alpha > 1;
+        long key = pos.zobristKey;
+        long entry = tt.probe(key);
+        int hashMove = 0;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth && !pvNode) {
+                int ttScore = scoreFromTable(TranspositionTable.score(entry));
+                switch (TranspositionTable.bound(entry)) {
+                    case TranspositionTable.EXACT -> {
+                        return ttScore;
+                    }
+                    case TranspositionTable.LOWER_BOUND -> alpha = Math.max(alpha, ttScore);
+                    case TranspositionTable.UPPER_BOUND -> beta = Math.min(beta, ttScore);
                 }
+                if (alpha >= beta) return ttScore;
+            }
+        }
+        int alphaOrig = alpha;
+
+        // Statisk evaluering til beskæringen; i skak eller i PV-knuder beskæres der ikke
+        boolean prune = !pvNode && !inCheck;
+        int staticEval = prune ? evaluate() : 0;
+
+        // Reverse futility: stillingen er så langt over beta, at selv et dårligt træk næppe bringer den under
+        if (prune && reverseFutilityPruning && depth <= REVERSE_FUTILITY_DEPTH && Math.abs(beta) < MATE_BOUND
+                && staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta) {
+            return staticEval;
+        }
+
+        // Null move: giver vi modstanderen et gratis træk og holder stadig beta, er stillingen god nok.
+        // Ikke to null moves i træk, og ikke uden officerer (i bondeslutspil er zugzwang almindeligt)
+        if (prune && nullMovePruning && depth >= 3 && staticEval >= beta && Math.abs(beta) < MATE_BOUND
+                && previousMove() != 0 && pos.hasNonPawnMaterial(pos.isWhiteTurn)) {
+            int reduction = 2 + depth / 4 + Math.min((staticEval - beta) / 200, 2);
+            makeNullMove();
+            int score = -negamax(depth - 1 - reduction, -beta, -beta + 1);
+            undoNullMove();
+            if (timeUp) return staticEval;
+            if (score >= beta) return score >= MATE_BOUND ? beta : score;
+            pos.updateCheckInfo(); // barnet har overskrevet skakinformationen
+        }
+
+        // Trækkene hentes i etaper efter forventet værdi (move ordering); stille træk genereres først når de skal bruges
+        MovePicker picker = pickers[ply];
+        int[] killer = killers[ply];
+        if (orderingHeuristics) {
+            picker.init(hashMove, killer[0], killer[1], counterMove(), history);
+        } else {
+            picker.init(hashMove, 0, 0, 0, null);
+        }
+
+        // Futility: tæt på bladene kan et stille træk ikke løfte en stilling langt under alpha
+        boolean futile = prune && futilityPruning && depth < FUTILITY_MARGIN.length && Math.abs(alpha) < MATE_BOUND
+                && staticEval + FUTILITY_MARGIN[depth] <= alpha;
 
-                int captured = Game.makeMove(move);
+        int bestEval = -INFINITY;
+        int bestMove = 0;
+        int moveCount = 0;
+        int move;
 
-                int eval = alphaBeta(depth - 1, alpha, beta, false, startTime, timeLimit);
+        while ((move = picker.next()) != 0) {
+            // Tidstjek mellem træk
+            if (outOfTime()) break;
 
-                Game.undoMove(move, captured);
+            moveCount++;
+            boolean quiet = pos.board[Move.to(move)] == 0 && !Move.isEnPassant(move) && Move.promotion(move) == 0;
+            makeMove(move);
 
-                maxEval = Math.max(maxEval, eval);
-                alpha = Math.max(alpha, eval);
+            // Skakgivende træk beskæres og reduceres aldrig; det første træk søges altid fuldt
+            boolean quietCandidate = quiet && moveCount > 1 && (futile || lateMoveReductions);
+            boolean givesCheck = quietCandidate && pos.isCurrentPlayerInCheck();
 
-                // Pruning
-                if (beta <= alpha) break;
+            if (futile && quietCandidate && !givesCheck) {
+                undoMove(move);
+                if (staticEval + FUTILITY_MARGIN[depth] > bestEval) bestEval = staticEval + FUTILITY_MARGIN[depth];
+                continue;
             }
-            return maxEval;
-        } else {
-            int minEval = Integer.MAX_VALUE;
-            for (Move move : moves) {
-                // Tidstjek mellem træk
-                if (System.currentTimeMillis() - startTime > timeLimit) {
-                    break;
+
+            int eval;
+            if (moveCount == 1) {
+                eval = -negamax(depth - 1, -beta, -alpha);
+            } else {
+                // Sene stille træk (ikke killers) søges først med reduceret dybde; slår de alpha, søges de fuldt
+                int reduction = 0;
+                if (lateMoveReductions && quietCandidate && !givesCheck && !inCheck && depth >= 3 && moveCount > 3
+                        && move != killer[0] && move != killer[1]) {
+                    reduction = LMR_REDUCTION[Math.min(depth, 63)][Math.min(moveCount, 63)];
+                    if (pvNode) reduction--;
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+
+                eval = -negamax(depth - 1 - reduction, -alpha - 1, -alpha);
+                if (reduction > 0 && eval > alpha) {
+                    eval = -negamax(depth - 1, -alpha - 1, -alpha);
+                }
+                if (eval > alpha && eval < beta) {
+                    eval = -negamax(depth - 1, -beta, -alpha);
+                }
+            }
+
+            undoMove(move);
+
+            if (eval > bestEval) {
+                bestEval = eval;
+                bestMove = move;
+                if (eval > alpha) {
+                    alpha = eval;
+                    updatePv(move);
                 }
+            }
+
+            // Pruning
+            if (alpha >= beta) {
+                cutoffs++;
+                if (moveCount == 1) firstMoveCutoffs++;
+                if (orderingHeuristics && quiet) {
+                    updateQuietCutoff(move, depth);
+                }
+                break;
+            }
+        }
+
+        // Ingen lovlige træk: picker har lagt skakinformationen for knuden tilbage
+        if (moveCount == 0) {
+            if (timeUp) return evaluate();
+            return terminalScore();
+        }
+
+        if (!timeUp) {
+            int bound;
+            if (bestEval <= alphaOrig) bound = TranspositionTable.UPPER_BOUND;
+            else if (bestEval >= beta) bound = TranspositionTable.LOWER_BOUND;
+            else bound = TranspositionTable.EXACT;
+            tt.store(key, depth, bound, scoreToTable(bestEval), bestMove);
+        }
+
+        return bestEval;
+    }
+
+    // Statisk evaluering set fra siden i trækket
+    private int evaluate() {
+        int score = Evaluation.evaluatePosition(pos);
+        return pos.isWhiteTurn ? score : -score;
+    }
+
+    // Trækket er nyt bedste i knuden: variationen herfra er trækket efterfulgt af barnets variation
+    private void updatePv(int move) {
+        int[] line = pvTable[ply];
+        line[ply] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, line, ply + 1, childLength - ply - 1);
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    // Score for en knude uden lovlige træk: mat (jo længere fra roden, jo mindre) eller pat, set fra siden i trækket.
+    // Kræver at generateLegalMoves lige er kaldt, så pos.checkers gælder for stillingen.
+    private int terminalScore() {
+        if (pos.checkers == 0) return 0;
+        return -(MATE_SCORE - ply);
+    }
+
+    // Mat-scorer gemmes i tabellen som afstand fra knuden og omregnes til afstand fra roden ved opslag
+    private int scoreToTable(int score) {
+        if (score > MATE_BOUND) return score + ply;
+        if (score < -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private int scoreFromTable(int score) {
+        if (score > MATE_BOUND) return score - ply;
+        if (score < -MATE_BOUND) return score + ply;
+        return score;
+    }
 
-                int captured = Game.makeMove(move);
+    /**
+     * Søger alle rodtræk til den givne dybde og gemmer resultatet i tabellen.
+     * Den fælles rodsøgning for {@link Engine} (og dermed {@link AI} og {@link Uci}), {@link Bench} og hjælpetrådene
+     * i {@link LazySmp}; trækkene søges i den rækkefølge de står i bufferen.
+     *
+     * Fra {@link #ASPIRATION_DEPTH} søges der først i et smalt vindue omkring forrige iterations score.
+     * Falder scoren uden for, udvides vinduet på den side (dobbelt så bredt hver gang) og roden søges igen.
+     *
+     * @return Det bedste træk, eller 0 hvis søgningen blev afbrudt før første træk var færdigt
+     */
+    public int searchRoot(int depth, int[] rootMoves, int count) {
+        ageHistory();
+        int previous = pos.isWhiteTurn ? rootScore : -rootScore;
+        int score = aspiration(depth, previous, rootMoves, count);
+        if (timeUp) return 0; // scoren er ufuldstændig
+
+        tt.store(pos.zobristKey, depth, TranspositionTable.EXACT, scoreToTable(score), rootBestMove);
+        rootScore = pos.isWhiteTurn ? score : -score;
+        return rootBestMove;
+    }
 
-                int eval = alphaBeta(depth - 1, alpha, beta, true, startTime, timeLimit);
+    // Søger rodtrækkene i et vindue omkring guess (fra depth >= ASPIRATION_DEPTH) og udvider det, til scoren ligger inden for
+    private int aspiration(int depth, int guess, int[] rootMoves, int count) {
+        int delta = ASPIRATION_WINDOW;
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        if (depth >= ASPIRATION_DEPTH && Math.abs(guess) < MATE_BOUND) {
+            alpha = guess - delta;
+            beta = guess + delta;
+        }
 
-                Game.undoMove(move, captured);
+        while (true) {
+            int score = searchRootWindow(depth, alpha, beta, rootMoves, count);
+            if (timeUp) return score;
 
-                minEval = Math.min(minEval, eval);
-                beta = Math.min(beta, eval);
+            if (score <= alpha && alpha > -INFINITY) {
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta && beta < INFINITY) {
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+            aspirationResearches++;
+            delta *= 2;
+        }
+    }
 
-                // Pruning
-                if (beta <= alpha) break;
+    // PVS over rodtrækkene i vinduet (alpha, beta); bedste træk lægges i rootBestMove
+    private int searchRootWindow(int depth, int alpha, int beta, int[] rootMoves, int count) {
+        int bestScore = -INFINITY;
+        rootBestMove = 0;
+        pvLength[0] = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (outOfTime()) break;
+
+            int move = rootMoves[i];
+            makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, -beta, -alpha);
+            } else {
+                score = -negamax(depth - 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, -beta, -alpha);
+                }
+            }
+            undoMove(move);
+            if (timeUp) break;
+
+            if (score > bestScore) {
+                bestScore = score;
+                rootBestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(move);
+                }
             }
-            return minEval;
+            if (alpha >= beta) break;
+        }
+        return bestScore;
+    }
+
+    /**
+     * Hovedvariationen fra seneste søgning: det bedste træk og de forventede svar, så langt de kendes.
+     * Efter {@link #searchRoot} starter den med rodtrækket; efter {@link #alphaBeta} med det bedste træk i den stilling.
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(pvTable[0], pvLength[0]);
+    }
+
+    /**
+     * Beder søgningen stoppe hurtigst muligt. Må kaldes fra en anden tråd.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Sætter tidsstyringen for de næste søgninger og nulstiller et tidligere stop.
+     */
+    public void setTimeManager(TimeManager timeManager) {
+        this.timeManager = timeManager;
+        nodeAllowance = nodes;
+        timeUp = false;
+        stopRequested = false;
+    }
+
+    /**
+     * @return true hvis seneste søgning blev afbrudt; dens resultat er så ufuldstændigt og skal kasseres
+     */
+    public boolean isStopped() {
+        return timeUp;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getRootScore() {
+        return rootScore;
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    public long getAspirationResearches() {
+        return aspirationResearches;
+    }
+
+    private static boolean enabled(String property) {
+        return !"false".equals(System.getProperty(property));
+    }
+
+    private boolean outOfTime() {
+        if (timeUp) return true;
+        if (stopRequested || timeManager.isStopped() || (nodes >= nodeAllowance && !reserveNodes())
+                || (++pollCounter % TimeManager.POLL_NODES == 0 && timeManager.hardLimitReached())) {
+            timeUp = true;
+        }
+        return timeUp;
+    }
+
+    // Er knudebudgettet opbrugt, stoppes alle søgetråde på tidsstyringen, ikke kun denne
+    private boolean reserveNodes() {
+        long granted = timeManager.reserveNodes(NODE_BATCH);
+        if (granted == 0) {
+            timeManager.stop();
+            return false;
+        }
+        nodeAllowance += granted;
+        return true;
+    }
+
+    private void makeMove(int move) {
+        pos.makeMove(move);
+        playedMoves[ply] = move;
+        ply++;
+    }
+
+    private void undoMove(int move) {
+        ply--;
+        pos.undoMove(move);
+    }
+
+    // Null move tæller som et spillet træk 0, så der ikke laves to i træk; modtræk gemmes og slås ikke op for det
+    private void makeNullMove() {
+        pos.makeNullMove();
+        playedMoves[ply] = 0;
+        ply++;
+    }
+
+    private void undoNullMove() {
+        ply--;
+        pos.undoNullMove();
+    }
+
+    // Vælger trækket med højest score blandt de resterende og bytter det frem på plads 'index'
+    private static int pickBest(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int j = index + 1; j < count; j++) {
+            if (scores[j] > scores[best]) best = j;
+        }
+        if (best != index) {
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
         }
+        return moves[index];
     }
 
     // Hjælpemetode til at forbedre move-ordering mellem iterationer
@@ -0,0 +1,149 @@
+package com.example;
+
+/**
+ * Grænserne for én søgning gennem {@link Engine}: dybde, knuder, fast tid pr. træk, ur eller uendelig.
+ * Uforanderlig; start med en af fabriksmetoderne og tilføj flere grænser med with-metoderne,
+ * fx {@code SearchLimits.moveTime(1000).withDepth(12)}. Den grænse der nås først, stopper søgningen.
+ */
+public final class SearchLimits {
+
+    private int depth = Search.MAX_PLY - 1;
+    private long nodes = Long.MAX_VALUE;
+    private long moveTime = -1;
+    private long whiteTime = -1;
+    private long blackTime = -1;
+    private long whiteIncrement = 0;
+    private long blackIncrement = 0;
+    private int movesToGo = 0;
+    private boolean infinite = false;
+    private boolean ponder = false;
+
+    private SearchLimits() {
+    }
+
+    private SearchLimits copy() {
+        SearchLimits copy = new SearchLimits();
+        copy.depth = depth;
+        copy.nodes = nodes;
+        copy.moveTime = moveTime;
+        copy.whiteTime = whiteTime;
+        copy.blackTime = blackTime;
+        copy.whiteIncrement = whiteIncrement;
+        copy.blackIncrement = blackIncrement;
+        copy.movesToGo = movesToGo;
+        copy.infinite = infinite;
+        copy.ponder = ponder;
+        return copy;
+    }
+
+    /**
+     * Ingen grænser; søgningen kører til dybden er udtømt eller den stoppes udefra.
+     */
+    public static SearchLimits none() {
+        return new SearchLimits();
+    }
+
+    public static SearchLimits depth(int depth) {
+        return none().withDepth(depth);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return none().withNodes(nodes);
+    }
+
+    public static SearchLimits moveTime(long millis) {
+        SearchLimits limits = new SearchLimits();
+        limits.moveTime = Math.max(0, millis);
+        return limits;
+    }
+
+    /**
+     * Partiur som i UCI's go wtime/btime/winc/binc/movestogo; tiden fordeles af {@link TimeManager#forClock}.
+     *
+     * En negativ tid betyder at sidens ur ikke er kendt; søger den side, er der ingen tidsgrænse.
+     *
+     * @param movesToGo Træk til næste tidskontrol, eller 0 hvis hele partiet skal klares på uret
+     */
+    public static SearchLimits clock(long whiteTime, long blackTime, long whiteIncrement, long blackIncrement, int movesToGo) {
+        SearchLimits limits = new SearchLimits();
+        limits.whiteTime = whiteTime;
+        limits.blackTime = blackTime;
+        limits.whiteIncrement = whiteIncrement;
+        limits.blackIncrement = blackIncrement;
+        limits.movesToGo = movesToGo;
+        return limits;
+    }
+
+    /**
+     * Søger til den stoppes med {@link Engine#stop()}; resultatet afleveres først da, også hvis dybden er udtømt.
+     */
+    public static SearchLimits infinite() {
+        SearchLimits limits = new SearchLimits();
+        limits.infinite = true;
+        return limits;
+    }
+
+    public SearchLimits withDepth(int depth) {
+        SearchLimits limits = copy();
+        limits.depth = Math.clamp(depth, 1, Search.MAX_PLY - 1);
+        return limits;
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        SearchLimits limits = copy();
+        limits.nodes = Math.max(1, nodes);
+        return limits;
+    }
+
+    /**
+     * Tænker i modstanderens tid: tidsgrænserne gælder først efter {@link Engine#ponderHit()},
+     * og resultatet afleveres tidligst da.
+     */
+    public SearchLimits withPonder(boolean ponder) {
+        SearchLimits limits = copy();
+        limits.ponder = ponder;
+        return limits;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public boolean isInfinite() {
+        return infinite;
+    }
+
+    // Uendelig går forud for fast tid, som går forud for uret; knudegrænsen deles af alle søgetråde
+    TimeManager createTimeManager(boolean white) {
+        long remaining = white ? whiteTime : blackTime;
+        TimeManager timeManager;
+        if (infinite) {
+            timeManager = TimeManager.infinite();
+        } else if (moveTime >= 0) {
+            timeManager = TimeManager.forMoveTime(moveTime);
+        } else if (remaining >= 0) {
+            timeManager = TimeManager.forClock(remaining, white ? whiteIncrement : blackIncrement, movesToGo);
+        } else {
+            timeManager = TimeManager.infinite();
+        }
+        if (nodes < Long.MAX_VALUE) timeManager.withNodeLimit(nodes);
+        return ponder ? timeManager.ponder() : timeManager;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("SearchLimits[");
+        if (depth < Search.MAX_PLY - 1) text.append("depth=").append(depth).append(' ');
+        if (nodes < Long.MAX_VALUE) text.append("nodes=").append(nodes).append(' ');
+        if (moveTime >= 0) text.append("moveTime=").append(moveTime).append("ms ");
+        if (whiteTime >= 0 || blackTime >= 0) text.append("clock=").append(whiteTime).append('/').append(blackTime)
+                .append("+").append(whiteIncrement).append('/').append(blackIncrement).append(' ');
+        if (infinite) text.append("infinite ");
+        if (ponder) text.append("ponder ");
+        return text.toString().trim() + "]";
+    }
+}
@@ -0,0 +1,11 @@
+package com.example;
+
+/**
+ * Modtager status fra en igangværende søgning i {@link Engine}: kaldes på søgetråden efter hver færdig
+ * iteration, så kaldet bør være kort. Afbrudte iterationer meldes ikke.
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    void onIteration(SearchResult progress);
+}
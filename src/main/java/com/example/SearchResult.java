@@ -0,0 +1,62 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultatet af en søgning gennem {@link Engine}, eller status efter én iteration når den sendes til en
+ * {@link SearchListener}. Uforanderlig, så den kan deles mellem tråde.
+ *
+ * Scoren er i centibønder set fra siden i trækket; mat-scorer følger {@link Search#MATE_SCORE}.
+ */
+public final class SearchResult {
+
+    public final Move bestMove;     // null hvis stillingen er mat eller pat
+    public final Move ponderMove;   // det ventede svar, eller null
+    public final int score;
+    public final int depth;
+    public final long nodes;
+    public final long timeMillis;
+    public final List<Move> principalVariation;
+
+    SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] pv) {
+        List<Move> moves = new ArrayList<>(pv.length);
+        for (int move : pv) moves.add(Move.decode(move));
+
+        this.bestMove = bestMove == 0 ? null : Move.decode(bestMove);
+        this.ponderMove = pv.length > 1 && pv[0] == bestMove ? moves.get(1) : null;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.principalVariation = Collections.unmodifiableList(moves);
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) > Search.MATE_BOUND;
+    }
+
+    /**
+     * @return Antal hele træk til mat, negativt hvis siden i trækket bliver sat mat; 0 hvis scoren ikke er mat,
+     *         eller hvis siden allerede står mat (se {@link #isMate()})
+     */
+    public int mateIn() {
+        if (score > Search.MATE_BOUND) return (Search.MATE_SCORE - score + 1) / 2;
+        if (score < -Search.MATE_BOUND) return -(Search.MATE_SCORE + score) / 2;
+        return 0;
+    }
+
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(1, timeMillis);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pv = new StringBuilder();
+        for (Move move : principalVariation) pv.append(' ').append(Move.toUci(move.encoded()));
+        return "SearchResult[best=" + (bestMove == null ? "-" : Move.toUci(bestMove.encoded()))
+                + ", score=" + (isMate() ? "mate " + mateIn() : score + "cp") + ", depth=" + depth
+                + ", nodes=" + nodes + ", time=" + timeMillis + "ms, pv=" + pv.toString().trim() + "]";
+    }
+}
@@ -0,0 +1,104 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selvspil mellem to evalueringsindstillinger, fx to mobilitetsmetoder.
+ * Hver åbning spilles med begge farver; motorerne søger til fast dybde og skifter
+ * {@link Evaluation#mobilityMode} før hvert træk, så begge kan køre i samme JVM. Hver side har sin egen
+ * transpositionstabel; ellers ville den ene side bruge scorer og cutoffs fra den andens evaluering.
+ * Partier afsluttes ved mat, pat, 50-træksreglen, trefoldig gentagelse eller efter maxPlies halvtræk (remis).
+ *
+ * Kørsel: java com.example.SelfPlay [dybde] [modeA] [modeB] [maxPlies]
+ *         fx java com.example.SelfPlay 3 safe legal 160
+ */
+public class SelfPlay {
+
+    private static final String[] OPENINGS = {
+            Position.START_FEN,
+            "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",          // 1.e4 e5
+            "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",          // siciliansk
+            "rnbqkbnr/ppp1pppp/8/3p4/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - 0 2",          // 1.d4 d5
+            "rnbqkb1r/pppppppp/5n2/8/2P5/8/PP1PPPPP/RNBQKBNR w KQkq - 1 2",          // engelsk mod Sf6
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",      // 2.Sf3 Sc6
+    };
+
+    private final int depth;
+    private final int maxPlies;
+    private final TranspositionTable whiteTable = new TranspositionTable(16);
+    private final TranspositionTable blackTable = new TranspositionTable(16);
+
+    public SelfPlay(int depth, int maxPlies) {
+        this.depth = depth;
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Spiller et parti og returnerer resultatet set fra hvid: 1 = hvid vinder, 0 = remis, -1 = sort vinder.
+     */
+    public int playGame(String fen, int whiteMode, int blackMode) {
+        Position pos = new Position(fen);
+        List<Long> keys = new ArrayList<>();
+        keys.add(pos.zobristKey);
+        whiteTable.clear();
+        blackTable.clear();
+
+        for (int ply = 0; ply < maxPlies; ply++) {
+            if (pos.countLegalMoves() == 0) {
+                return pos.checkers == 0 ? 0 : (pos.isWhiteTurn ? -1 : 1);
+            }
+            if (pos.halfmoveClock >= 100 || repetitions(keys, pos.zobristKey) >= 3) return 0;
+
+            Evaluation.mobilityMode = pos.isWhiteTurn ? whiteMode : blackMode;
+            TranspositionTable tt = pos.isWhiteTurn ? whiteTable : blackTable;
+            int move = (int) new LazySmp(tt, 1).search(pos, depth)[0];
+            pos.makeMove(move);
+            keys.add(pos.zobristKey);
+        }
+        return 0;
+    }
+
+    private static int repetitions(List<Long> keys, long key) {
+        int count = 0;
+        for (long k : keys) if (k == key) count++;
+        return count;
+    }
+
+    /**
+     * Spiller alle åbninger med begge farver.
+     *
+     * @return { gevinster, remiser, tab } for modeA
+     */
+    public int[] match(int modeA, int modeB) {
+        int[] result = new int[3];
+        for (String fen : OPENINGS) {
+            for (int side = 0; side < 2; side++) {
+                boolean aIsWhite = side == 0;
+                int outcome = playGame(fen, aIsWhite ? modeA : modeB, aIsWhite ? modeB : modeA);
+                if (!aIsWhite) outcome = -outcome;
+                result[outcome > 0 ? 0 : outcome == 0 ? 1 : 2]++;
+                System.out.printf("%s  A som %s: %s%n", fen, aIsWhite ? "hvid" : "sort",
+                        outcome > 0 ? "gevinst" : outcome == 0 ? "remis" : "tab");
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        String nameA = args.length > 1 ? args[1] : "safe";
+        String nameB = args.length > 2 ? args[2] : "legal";
+        int maxPlies = args.length > 3 ? Integer.parseInt(args[3]) : 160;
+        int previous = Evaluation.mobilityMode;
+
+        long start = System.currentTimeMillis();
+        int[] r = new SelfPlay(depth, maxPlies).match(Evaluation.parseMobilityMode(nameA),
+                Evaluation.parseMobilityMode(nameB));
+        Evaluation.mobilityMode = previous;
+
+        int games = r[0] + r[1] + r[2];
+        System.out.printf("%s mod %s, dybde %d: +%d =%d -%d  (%.1f%%)  %d ms%n", nameA, nameB, depth,
+                r[0], r[1], r[2], 100.0 * (r[0] + 0.5 * r[1]) / games, System.currentTimeMillis() - start);
+    }
+}
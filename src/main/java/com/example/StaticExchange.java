@@ -0,0 +1,172 @@
+package com.example;
+
+/**
+ * Static Exchange Evaluation på bitboards: hvad vinder eller taber man materielt, hvis begge sider
+ * skiftes til at slå på ét felt med den mindst værdifulde brik?
+ *
+ * Angriberne på feltet samles én gang; når en brik fjernes, tilføjes de løbere, tårne og dronninger
+ * der står bag den (x-ray). Der allokeres intet - gevinstlisten ligger i stillingens egen buffer.
+ * {@link #seeGreaterOrEqual} svarer kun på om udvekslingen giver mindst en tærskel og stopper så snart
+ * svaret er kendt; den bruges til trækordning og beskæring i quiescence.
+ */
+public class StaticExchange {
+
+    // Værdier indekseret efter briktype; kongen er så dyr at den aldrig kan "betale sig" at slå
+    private static final int[] VALUE = { 0, 100, 320, 330, 500, 900, 20000 };
+
+    private static final int MAX_EXCHANGES = 32;
+
+    /**
+     * @return Nettogevinsten for den side hvis brik flytter, hvis udvekslingen startet af move gennemføres optimalt
+     */
+    public static int see(Position pos, int move) {
+        if (Move.isCastle(move)) return 0;
+
+        int from = Position.toBitboardSquare(Move.from(move));
+        int to = Position.toBitboardSquare(Move.to(move));
+        long occupancy = (pos.whiteOccupancy | pos.blackOccupancy) ^ (1L << from);
+
+        int[] gain = pos.seeGains;
+        boolean moverWhite = pos.board[Move.from(move)] > 0;
+        int attacker = Math.abs(pos.board[Move.from(move)]);
+        gain[0] = VALUE[Math.abs(pos.board[Move.to(move)])];
+        if (Move.isEnPassant(move)) {
+            gain[0] = VALUE[MoveGenerator.PAWN];
+            occupancy ^= 1L << (moverWhite ? to - 8 : to + 8);
+        }
+        if (Move.promotion(move) != 0) {
+            attacker = Move.promotion(move);
+            gain[0] += VALUE[attacker] - VALUE[MoveGenerator.PAWN];
+        }
+
+        long attackers = AttackMap.attackersTo(pos, to, occupancy) & occupancy;
+        boolean white = !moverWhite;
+        int depth = 0;
+
+        while (depth < MAX_EXCHANGES - 1) {
+            long own = attackers & (white ? pos.whiteOccupancy : pos.blackOccupancy);
+            if (own == 0) break;
+
+            int sign = white ? 1 : -1;
+            int next = MoveGenerator.PAWN;
+            long fromSet = own & pos.bitboards[sign * next + 6];
+            while (fromSet == 0) {
+                next++;
+                fromSet = own & pos.bitboards[sign * next + 6];
+            }
+            // Kongen må kun slå, hvis modstanderen ikke har flere angribere
+            if (next == MoveGenerator.KING && (attackers & ~own) != 0) break;
+
+            depth++;
+            gain[depth] = VALUE[attacker] - gain[depth - 1];
+
+            occupancy ^= fromSet & -fromSet;
+            attackers = (attackers | xrays(pos, to, occupancy, next)) & occupancy;
+            attacker = next;
+            white = !white;
+        }
+
+        // Baglæns: hver side vælger mellem at stoppe og at slå igen
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    /**
+     * @return true hvis {@link #see(Position, int)} for trækket er mindst threshold
+     */
+    public static boolean seeGreaterOrEqual(Position pos, int move, int threshold) {
+        if (Move.isCastle(move)) return threshold <= 0;
+
+        int from = Position.toBitboardSquare(Move.from(move));
+        int to = Position.toBitboardSquare(Move.to(move));
+        long occupancy = (pos.whiteOccupancy | pos.blackOccupancy) ^ (1L << from) ^ (1L << to);
+
+        boolean moverWhite = pos.board[Move.from(move)] > 0;
+        int captured = Math.abs(pos.board[Move.to(move)]);
+        int moving = Math.abs(pos.board[Move.from(move)]);
+        if (Move.isEnPassant(move)) {
+            captured = MoveGenerator.PAWN;
+            occupancy ^= 1L << (moverWhite ? to - 8 : to + 8);
+        }
+        // Som i see: forvandlingen vinder forskellen, og det er den nye brik der kan blive slået
+        int gain = VALUE[captured];
+        if (Move.promotion(move) != 0) {
+            moving = Move.promotion(move);
+            gain += VALUE[moving] - VALUE[MoveGenerator.PAWN];
+        }
+
+        // swap: hvad vi mindst skal vinde endnu, set fra den side der lige har slået
+        int swap = gain - threshold;
+        if (swap < 0) return false;
+        swap = VALUE[moving] - swap;
+        if (swap <= 0) return true;
+
+        long attackers = AttackMap.attackersTo(pos, to, occupancy);
+        boolean white = moverWhite;
+        boolean result = true;
+
+        while (true) {
+            white = !white;
+            attackers &= occupancy;
+            long own = attackers & (white ? pos.whiteOccupancy : pos.blackOccupancy);
+            if (own == 0) break;
+
+            result = !result;
+            int sign = white ? 1 : -1;
+            int next = MoveGenerator.PAWN;
+            long fromSet = own & pos.bitboards[sign * next + 6];
+            while (fromSet == 0) {
+                next++;
+                fromSet = own & pos.bitboards[sign * next + 6];
+            }
+
+            if (next == MoveGenerator.KING) {
+                // Kongen kan kun slå, hvis modstanderen ikke har flere angribere
+                return (attackers & ~own) != 0 ? !result : result;
+            }
+
+            swap = VALUE[next] - swap;
+            if (swap < (result ? 1 : 0)) break;
+
+            occupancy ^= fromSet & -fromSet;
+            attackers |= xrays(pos, to, occupancy, next);
+        }
+        return result;
+    }
+
+    /**
+     * Den mindst værdifulde brik fra den givne side der angriber feltet (pseudo-lovligt).
+     *
+     * @return 0x88-feltet, eller -1 hvis ingen angriber
+     */
+    public static int leastValuableAttacker(Position pos, int square88, boolean byWhite) {
+        long own = AttackMap.attackersOf(pos, square88, byWhite);
+        if (own == 0) return -1;
+
+        int sign = byWhite ? 1 : -1;
+        for (int piece = MoveGenerator.PAWN; piece <= MoveGenerator.KING; piece++) {
+            long fromSet = own & pos.bitboards[sign * piece + 6];
+            if (fromSet != 0) return Position.toBoardSquare(Long.numberOfTrailingZeros(fromSet));
+        }
+        return -1;
+    }
+
+    // Glidende brikker der først kan se feltet, efter at en brik af typen removed er fjernet
+    private static long xrays(Position pos, int square, long occupancy, int removed) {
+        long[] bb = pos.bitboards;
+        long queens = bb[MoveGenerator.QUEEN + 6] | bb[-MoveGenerator.QUEEN + 6];
+        long result = 0;
+        if (removed == MoveGenerator.PAWN || removed == MoveGenerator.BISHOP || removed == MoveGenerator.QUEEN) {
+            result |= Bitboards.bishopAttacks(square, occupancy)
+                    & (bb[MoveGenerator.BISHOP + 6] | bb[-MoveGenerator.BISHOP + 6] | queens);
+        }
+        if (removed == MoveGenerator.ROOK || removed == MoveGenerator.QUEEN) {
+            result |= Bitboards.rookAttacks(square, occupancy)
+                    & (bb[MoveGenerator.ROOK + 6] | bb[-MoveGenerator.ROOK + 6] | queens);
+        }
+        return result;
+    }
+}
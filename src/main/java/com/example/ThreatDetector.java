@@ -4,25 +4,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import static com.example.MoveGenerator.slide;
-
+/**
+ * Trusler mod brikker. Spørgsmålene "er feltet angrebet?" besvares af stillingens {@link AttackMap},
+ * og angriberne af et felt findes som et bitboard i stedet for ved at gennemgå brættet.
+ */
 public class ThreatDetector {
 
-
-    private static List<Integer> getAttackersOfSquare(int square, boolean byWhitePieces) {
-        List<Integer> attackers = new ArrayList<>();
-        for (int i = 0; i < 128; i++) {
-            if ((i & 0x88) != 0) continue;
-            int piece = Game.board[i];
-            if (piece == 0 || (piece > 0) != byWhitePieces) continue;
-
-            if (MoveGenerator.canPieceReachSquare(i, square, Math.abs(piece), byWhitePieces, Game.board)) {
-                attackers.add(i);
-            }
-        }
-        return attackers;
-    }
-
     /**
      * Finder alle brikker tilhørende den aktuelle spiller, der er under angreb.
      * Returnerer en liste sorteret efter brikværdi (mest værdifulde først).
@@ -30,21 +17,13 @@ public class ThreatDetector {
      *
      * @return Et array af [felt, brikværdi] par for truede brikker
      */
-    public static int[][] findThreatenedPieces() {
+    public static int[][] findThreatenedPieces(Position pos) {
         List<int[]> threatened = new ArrayList<>();
 
-        for (int i = 0; i < 128; i++) {
-            if ((i & 0x88) != 0) continue;
-
-            int piece = Game.board[i];
-            if (piece == 0) continue;
-
-            boolean isWhitePiece = piece > 0;
-            if ((Game.isWhiteTurn && !isWhitePiece) || (!Game.isWhiteTurn && isWhitePiece)) continue;
-
-            if (isSquareAttacked(i, !isWhitePiece)) {
-                threatened.add(new int[]{i, Math.abs(Evaluation.getPieceValue(piece))});
-            }
+        long own = pos.isWhiteTurn ? pos.whiteOccupancy : pos.blackOccupancy;
+        for (long b = own & pos.attackMap().attackedBy(!pos.isWhiteTurn); b != 0; b &= b - 1) {
+            int i = Position.toBoardSquare(Long.numberOfTrailingZeros(b));
+            threatened.add(new int[]{i, Math.abs(Evaluation.getPieceValue(pos.board[i]))});
         }
 
         threatened.sort((a, b) -> Integer.compare(b[1], a[1]));
@@ -58,23 +37,10 @@ public class ThreatDetector {
      *
      * @param square        Feltet der blev angrebet
      * @param byWhitePieces Om angriberne er hvide brikker
-     * @return Liste af felter med angribende brikker
+     * @return Bitboard over de angribende brikker (gennemløb med {@link Position#toBoardSquare})
      */
-    public static List<Integer> findAttackers(int square, boolean byWhitePieces) {
-        List<Integer> attackers = new ArrayList<>();
-
-        for (int i = 0; i < 128; i++) {
-            if ((i & 0x88) != 0) continue;
-
-            int piece = Game.board[i];
-            if (piece == 0 || (piece > 0) != byWhitePieces) continue;
-
-            if (canPieceAttackSquare(i, piece, square)) {
-                attackers.add(i);
-            }
-        }
-
-        return attackers;
+    public static long findAttackers(Position pos, int square, boolean byWhitePieces) {
+        return AttackMap.attackersOf(pos, square, byWhitePieces);
     }
 
 
@@ -82,30 +48,45 @@ public class ThreatDetector {
      * Tjekker om en truet brik kan beskyttes ved at slå angriberen.
      * Dette hjælper AI'en med at vælge "slå angriberen" frem for "flygt med brikken".
      *
+     * Forsvarerne findes som angribere af angriberens felt, og lovligheden afgøres af stillingens
+     * skakmaske og bindinger i stedet for ved at generere alle lovlige træk.
+     *
      * @param threatenedSquare Feltet med den truede brik
      * @param attackerSquare   Feltet med angriberen
      * @return True hvis angriberen kan slås juridisk
      */
-    public static boolean canCaptureAttacker(int threatenedSquare, int attackerSquare) {
-        boolean playerIsWhite = Game.board[threatenedSquare] > 0;
-        List<Move> legalMoves = Game.generateLegalMoves();
-
-        // Tjek om der er et juridisk træk der slår angriberen
-        for (Move move : legalMoves) {
-            if (move.to == attackerSquare) {
-                // Dette træk slår angriberen - tjek om det er sikkert
-                // (dvs. brikken der slår bliver ikke selv slået)
-                int movedPiece = Game.board[move.from];
-                boolean movedPieceIsWhite = movedPiece > 0;
-
-                if (movedPieceIsWhite == playerIsWhite) {
-                    // Dette er en af vores egne brikker
-                    System.out.println("   💡 " + Evaluation.getPieceName(movedPiece) + " at " +
-                            MoveGenerator.squareToCoord(move.from) + " can capture the attacker " +
-                            Evaluation.getPieceName(Game.board[attackerSquare]) + " at " +
-                            MoveGenerator.squareToCoord(attackerSquare));
-                    return true;
-                }
+    public static boolean canCaptureAttacker(Position pos, int threatenedSquare, int attackerSquare) {
+        boolean playerIsWhite = pos.board[threatenedSquare] > 0;
+
+        // Kun siden i trækket kan slå nu
+        if (playerIsWhite != pos.isWhiteTurn || !pos.updateCheckInfo()) return false;
+
+        int target = Position.toBitboardSquare(attackerSquare);
+        long targetBit = 1L << target;
+        int king = Position.toBitboardSquare(pos.findKingSquare(playerIsWhite));
+        long enemies = playerIsWhite ? pos.blackOccupancy : pos.whiteOccupancy;
+
+        for (long defenders = AttackMap.attackersOf(pos, attackerSquare, playerIsWhite); defenders != 0; defenders &= defenders - 1) {
+            int from = Long.numberOfTrailingZeros(defenders);
+            boolean legal;
+            if (from == king) {
+                // Kongen må ikke slå en forsvaret brik; den fjernes fra belægningen, så en skakgiver bag den også ses
+                long occupancy = (pos.whiteOccupancy | pos.blackOccupancy) & ~(1L << from);
+                legal = (AttackMap.attackersTo(pos, target, occupancy) & enemies) == 0;
+            } else {
+                // Ved dobbeltskak må kun kongen flytte; ellers skal slaget parere en eventuel skak,
+                // og en bundet brik må kun slå langs bindingslinjen
+                legal = pos.checkers < 2 && (pos.checkMask & targetBit) != 0
+                        && ((pos.pinned & (1L << from)) == 0 || (Bitboards.LINE[king][from] & targetBit) != 0);
+            }
+
+            if (legal) {
+                int square = Position.toBoardSquare(from);
+                System.out.println("   💡 " + Evaluation.getPieceName(pos.board[square]) + " at " +
+                        MoveGenerator.squareToCoord(square) + " can capture the attacker " +
+                        Evaluation.getPieceName(pos.board[attackerSquare]) + " at " +
+                        MoveGenerator.squareToCoord(attackerSquare));
+                return true;
             }
         }
         return false;
@@ -115,47 +96,37 @@ public class ThreatDetector {
      * Forbedret version af findThreatenedPieces der også tjekker om angriberen kan slås.
      * Returnerer kun brikker der er i ægte fare (ikke kan reddes ved at slå angriberen).
      */
-    public static int[][] findThreatenedPiecesAdvanced() {
+    public static int[][] findThreatenedPiecesAdvanced(Position pos) {
         List<int[]> threatened = new ArrayList<>();
 
-        // Scan hele brættet for brikker tilhørende den aktuelle spiller
-        for (int i = 0; i < 128; i++) {
-            if ((i & 0x88) != 0) continue; // Spring ugyldige felter over
-
-            int piece = Game.board[i];
-            if (piece == 0) continue; // Spring tomme felter over
-
-            // Tjek kun brikker der tilhører den aktuelle spiller
+        // Den aktuelle spillers brikker som modstanderen angriber, direkte fra angrebskortet
+        long own = pos.isWhiteTurn ? pos.whiteOccupancy : pos.blackOccupancy;
+        for (long attacked = own & pos.attackMap().attackedBy(!pos.isWhiteTurn); attacked != 0; attacked &= attacked - 1) {
+            int i = Position.toBoardSquare(Long.numberOfTrailingZeros(attacked));
+            int piece = pos.board[i];
             boolean isWhitePiece = piece > 0;
-            if ((Game.isWhiteTurn && !isWhitePiece) || (!Game.isWhiteTurn && isWhitePiece)) {
-                continue;
-            }
 
-            // Tjek om denne brik er under angreb af modstanderen
-            boolean isAttacked = isSquareAttacked(i, !isWhitePiece);
-
-            if (isAttacked) {
-                // Find alle angribere af denne brik
-                List<Integer> attackers = findAttackers(i, !isWhitePiece);
-                boolean canDefendByCapture = false;
-
-                // Tjek om vi kan slå en af angriberne
-                for (int attackerSquare : attackers) {
-                    if (canCaptureAttacker(i, attackerSquare)) {
-                        canDefendByCapture = true;
-                        System.out.println("   ✅ " + Evaluation.getPieceName(piece) + " at " +
-                                MoveGenerator.squareToCoord(i) + " can be defended by capturing attacker!");
-                        break;
-                    }
+            // Find alle angribere af denne brik
+            long attackers = findAttackers(pos, i, !isWhitePiece);
+            boolean canDefendByCapture = false;
+
+            // Tjek om vi kan slå en af angriberne
+            for (long bits = attackers; bits != 0; bits &= bits - 1) {
+                int attackerSquare = Position.toBoardSquare(Long.numberOfTrailingZeros(bits));
+                if (canCaptureAttacker(pos, i, attackerSquare)) {
+                    canDefendByCapture = true;
+                    System.out.println("   ✅ " + Evaluation.getPieceName(piece) + " at " +
+                            MoveGenerator.squareToCoord(i) + " can be defended by capturing attacker!");
+                    break;
                 }
+            }
 
-                // Hvis vi ikke kan forsvare ved at slå angriberen, er brikken i ægte fare
-                if (!canDefendByCapture) {
-                    int pieceValue = Math.abs(Evaluation.getPieceValue(piece));
-                    threatened.add(new int[]{i, pieceValue});
-                    System.out.println("⚠️ " + Evaluation.getPieceName(piece) + " at " +
-                            MoveGenerator.squareToCoord(i) + " is in real danger (cannot defend by capture)!");
-                }
+            // Hvis vi ikke kan forsvare ved at slå angriberen, er brikken i ægte fare
+            if (!canDefendByCapture) {
+                int pieceValue = Math.abs(Evaluation.getPieceValue(piece));
+                threatened.add(new int[]{i, pieceValue});
+                System.out.println("⚠️ " + Evaluation.getPieceName(piece) + " at " +
+                        MoveGenerator.squareToCoord(i) + " is in real danger (cannot defend by capture)!");
             }
         }
 
@@ -174,22 +145,10 @@ public class ThreatDetector {
      * @param byWhitePieces Hvis true, tjekkes angreb fra hvide brikker, ellers sorte
      * @return True hvis feltet er under angreb
      */
-    public static boolean isSquareAttacked(int square, boolean byWhitePieces) {
-        for (int from = 0; from < 128; from++) {
-            if ((from & 0x88) != 0) continue;
-
-            int piece = Game.board[from];
-            if (piece == 0 || (piece > 0) != byWhitePieces) continue;
-
-            if (canPieceAttackSquare(from, piece, square)) {
-                return true;
-            }
-        }
-        return false;
+    public static boolean isSquareAttacked(Position pos, int square, boolean byWhitePieces) {
+        return pos.attackMap().isAttacked(square, byWhitePieces);
     }
 
-
-
     /**
      * Tjekker om en brik er forsvaret af brikker af samme farve.
      * Bruges til at vurdere bytte-situationer: om en brik kan slås sikkert.
@@ -198,46 +157,15 @@ public class ThreatDetector {
      * @param byWhitePieces Hvis true, tjekkes forsvar fra hvide brikker, ellers sorte
      * @return True hvis feltet er forsvaret
      */
-    private static boolean isSquareDefendedBy(int square, boolean byWhitePieces) {
-        StringBuilder defenders = new StringBuilder();
-        boolean isDefended = false;
-
-        for (int i = 0; i < 128; i++) {
-            if ((i & 0x88) != 0) continue;     // Spring ugyldige felter over
-            if (i == square) continue;         // Skip feltet selv
-
-            int piece = Game.board[i];
-            if (piece == 0) continue;          // Skip tomme felter
-
-            boolean isPieceWhite = piece > 0;
-            if (isPieceWhite != byWhitePieces) continue;
-
-            int absPiece = Math.abs(piece);
-            boolean canDefend = false;
-
-            // Brug fælles metode for alt undtagen bønder
-            if (absPiece != MoveGenerator.PAWN) {
-                canDefend = MoveGenerator.canPieceReachSquare(i, square, absPiece, isPieceWhite, Game.board);
-            } else {
-                // Bonde-speciallogik (diagonal forsvar)
-                int dir = isPieceWhite ? 16 : -16;
-                if ((i & 7) != 0 && i + dir - 1 == square) canDefend = true;
-                if ((i & 7) != 7 && i + dir + 1 == square) canDefend = true;
-            }
-
-            if (canDefend) {
-                if (defenders.length() > 0) defenders.append(", ");
-                defenders.append(Evaluation.getPieceName(piece)).append(" at ").append(MoveGenerator.squareToCoord(i));
-                isDefended = true;
-            }
-        }
+    private static boolean isSquareDefendedBy(Position pos, int square, boolean byWhitePieces) {
+        long defenders = AttackMap.attackersOf(pos, square, byWhitePieces);
 
-        if (isDefended) {
+        if (defenders != 0) {
             System.out.println("   ⚠️ Square " + MoveGenerator.squareToCoord(square) +
-                    " is defended by: " + defenders);
+                    " is defended by: " + describe(pos, defenders));
         }
 
-        return isDefended;
+        return defenders != 0;
     }
 
 
@@ -249,13 +177,13 @@ public class ThreatDetector {
      * @param attackerIsWhite Om den angribende brik er hvid
      * @return True hvis den slåede brik er forsvaret
      */
-    static boolean isCapturedPieceDefended(int captureSquare, boolean attackerIsWhite) {
-        if (Game.board[captureSquare] != 0) {
-            boolean capturedPieceIsWhite = Game.board[captureSquare] > 0;
+    static boolean isCapturedPieceDefended(Position pos, int captureSquare, boolean attackerIsWhite) {
+        if (pos.board[captureSquare] != 0) {
+            boolean capturedPieceIsWhite = pos.board[captureSquare] > 0;
 
             // Vigtigt: Vi skal tjekke om destinationsfeltet er forsvaret af brikker af SAMME farve
             // som den brik, der bliver slået (modsat farve af angriberen)
-            return isSquareDefendedBy(captureSquare, capturedPieceIsWhite);
+            return isSquareDefendedBy(pos, captureSquare, capturedPieceIsWhite);
         }
         return false;
     }
@@ -267,68 +195,34 @@ public class ThreatDetector {
      * @param move Trækket der skal vurderes
      * @return True hvis destinationen vil være under angreb efter trækket
      */
-    static boolean isDestinationAttackedAfterMove(Move move) {
-        int movedPiece = Game.board[move.from];
+    static boolean isDestinationAttackedAfterMove(Position pos, Move move) {
+        int movedPiece = pos.board[move.from];
         boolean isWhite = movedPiece > 0;
 
         // Midlertidigt udfør trækket for at se, hvad der sker efter
-        int captured = Game.makeMove(move);
-        boolean isUnderAttack = false;
-        StringBuilder attackers = new StringBuilder();
-
-        // Gennemgå alle felter på brættet og find modstanderens brikker
-        for (int i = 0; i < 128; i++) {
-            if ((i & 0x88) != 0) continue; // Ignorer ugyldige felter
-            if (i == move.to) continue;    // Undgå at tjekke destination mod sig selv
-
-            int piece = Game.board[i];
-            if (piece == 0) continue;
-
-            boolean isEnemy = (piece > 0) != isWhite;
-            if (!isEnemy) continue;
-
-            int absPiece = Math.abs(piece);
-
-            boolean canAttack;
-
-            // Brug fælles metode til at afgøre, om brikken kan angribe det nye felt
-            if (absPiece == MoveGenerator.PAWN) {
-                // Special case: bønder angriber diagonalt, ikke fremad
-                int dir = (piece > 0) ? 16 : -16;
-                canAttack = ((i & 7) != 0 && i + dir - 1 == move.to) ||
-                        ((i & 7) != 7 && i + dir + 1 == move.to);
-            } else {
-                canAttack = MoveGenerator.canPieceReachSquare(i, move.to, absPiece, piece > 0, Game.board);
-            }
-
-            if (canAttack) {
-                if (attackers.length() > 0) attackers.append(", ");
-                attackers.append(Evaluation.getPieceName(piece)).append(" at ").append(MoveGenerator.squareToCoord(i));
-                isUnderAttack = true;
-            }
-        }
+        int captured = pos.makeMove(move);
+        long attackers = AttackMap.attackersOf(pos, move.to, !isWhite);
+        String names = attackers != 0 ? describe(pos, attackers) : "";
 
         // Gendan brættet til før trækket
-        Game.undoMove(move, captured);
+        pos.undoMove(move, captured);
 
-        if (isUnderAttack) {
+        if (attackers != 0) {
             System.out.println("   🚨 After moving " + Evaluation.getPieceName(movedPiece) + " to " +
-                    MoveGenerator.squareToCoord(move.to) + ", it would be attacked by: " + attackers);
+                    MoveGenerator.squareToCoord(move.to) + ", it would be attacked by: " + names);
         }
 
-        return isUnderAttack;
+        return attackers != 0;
     }
 
-    private static boolean canPieceAttackSquare(int from, int piece, int target) {
-        int abs = Math.abs(piece);
-        boolean isWhite = piece > 0;
-
-        if (abs == MoveGenerator.PAWN) {
-            int dir = isWhite ? 16 : -16;
-            return ((from & 7) != 0 && from + dir - 1 == target) ||
-                    ((from & 7) != 7 && from + dir + 1 == target);
+    // "Knight at f3, Pawn at e4" for brikkerne i bitboardet
+    private static String describe(Position pos, long pieces) {
+        StringBuilder text = new StringBuilder();
+        for (long b = pieces; b != 0; b &= b - 1) {
+            int square = Position.toBoardSquare(Long.numberOfTrailingZeros(b));
+            if (text.length() > 0) text.append(", ");
+            text.append(Evaluation.getPieceName(pos.board[square])).append(" at ").append(MoveGenerator.squareToCoord(square));
         }
-
-        return MoveGenerator.canPieceReachSquare(from, target, abs, isWhite, Game.board);
+        return text.toString();
     }
 }
@@ -0,0 +1,175 @@
+package com.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tidsstyring for én søgning. Søgningen spørger kun uret hver {@link #POLL_NODES} knude og ellers
+ * det flygtige stopflag, så tidstjekket ikke koster noget at tale om. Der er to grænser:
+ * den bløde afgør om en ny iteration skal startes, den hårde afbryder en iteration midt i træet
+ * (den kasseres så af kalderen). Skifter det bedste træk mellem iterationerne, forlænges den bløde
+ * grænse, fordi stillingen tydeligvis ikke er afklaret.
+ *
+ * Uret er System.nanoTime(), som ikke springer når systemuret stilles.
+ *
+ * En knudegrænse ({@link #withNodeLimit}) er et budget som alle søgetråde med samme tidsstyring
+ * (hovedtråd og Lazy SMP-hjælpere) henter knuder fra, så grænsen gælder for dem tilsammen.
+ */
+public final class TimeManager {
+
+    // Hvor ofte søgningen læser uret (i kald af tidstjekket)
+    static final int POLL_NODES = 2048;
+
+    // Reserve til GUI/protokol, og det antal træk der regnes med når partiet ikke siger det
+    private static final long MOVE_OVERHEAD = 30;
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private volatile long start = System.nanoTime();
+    private final long softLimit;   // ms; ingen ny iteration herefter
+    private final long hardLimit;   // ms; søgningen afbrydes
+    private double bestMoveChanges = 0;
+    private int lastBestMove = 0;
+    private volatile boolean stopped = false;
+    private volatile boolean pondering = false;
+
+    // Knuder der endnu ikke er hentet af en søgetråd; Long.MAX_VALUE betyder ingen grænse
+    private final AtomicLong nodesLeft = new AtomicLong(Long.MAX_VALUE);
+
+    private TimeManager(long softLimit, long hardLimit) {
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+    }
+
+    /**
+     * Ingen tidsgrænse; søgningen stopper kun ved dybden eller {@link #stop()}.
+     */
+    public static TimeManager infinite() {
+        return new TimeManager(Long.MAX_VALUE / 4, Long.MAX_VALUE / 4);
+    }
+
+    /**
+     * Fast tid pr. træk. Der startes ikke en ny iteration efter 80% af tiden.
+     */
+    public static TimeManager forMoveTime(long millis) {
+        return new TimeManager(millis * 4 / 5, millis);
+    }
+
+    /**
+     * Fordeler resten af uret: en lige andel af de træk der mangler til næste tidskontrol
+     * (eller {@value #DEFAULT_MOVES_TO_GO} hvis ukendt) plus det meste af tillægget.
+     * En iteration startes kun i første halvdel af andelen; den hårde grænse er tre andele,
+     * dog aldrig mere end 90% af den tid der er tilbage.
+     *
+     * @param movesToGo Træk til næste tidskontrol, eller 0 hvis hele partiet skal klares på uret
+     */
+    public static TimeManager forClock(long remaining, long increment, int movesToGo) {
+        long available = Math.max(1, remaining - MOVE_OVERHEAD);
+        int moves = movesToGo > 0 ? Math.min(movesToGo, 50) : DEFAULT_MOVES_TO_GO;
+        long target = Math.min(available / moves + increment * 3 / 4, available);
+        long hard = Math.max(1, Math.min(target * 3, available - available / 10));
+        return new TimeManager(Math.min(target / 2, hard), hard);
+    }
+
+    /**
+     * Sætter søgningen til at tænke i modstanderens tid: grænserne gælder ikke, før {@link #ponderHit()} kaldes.
+     */
+    public TimeManager ponder() {
+        pondering = true;
+        return this;
+    }
+
+    /**
+     * Sætter et samlet knudebudget for alle søgetråde der bruger denne tidsstyring.
+     */
+    public TimeManager withNodeLimit(long nodes) {
+        nodesLeft.set(Math.max(0, nodes));
+        return this;
+    }
+
+    /**
+     * Henter op til wanted knuder fra budgettet. Uden knudegrænse gives altid wanted.
+     *
+     * @return Antal knuder søgetråden må bruge; 0 når budgettet er opbrugt
+     */
+    long reserveNodes(long wanted) {
+        while (true) {
+            long left = nodesLeft.get();
+            if (left == Long.MAX_VALUE) return wanted;
+            long granted = Math.min(wanted, left);
+            if (nodesLeft.compareAndSet(left, left - granted)) return granted;
+        }
+    }
+
+    /**
+     * Modstanderen spillede det ventede træk; uret startes forfra og grænserne gælder fra nu af.
+     */
+    public synchronized void ponderHit() {
+        start = System.nanoTime();
+        pondering = false;
+        notifyAll();
+    }
+
+    /**
+     * Starter uret forfra, når søgningen først begynder et stykke tid efter at tidsstyringen blev lavet
+     * (fx når den har ventet i kø på en søgetråd).
+     */
+    void restartClock() {
+        start = System.nanoTime();
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Skal en ny iteration startes? Den bløde grænse gøres op til 2,5 gange længere, når det bedste træk
+     * har skiftet i de seneste iterationer.
+     */
+    public boolean canStartIteration() {
+        if (stopped) return false;
+        if (pondering) return true;
+        double scale = 1.0 + Math.min(bestMoveChanges, 3.0) * 0.5;
+        return elapsedMillis() < Math.min(hardLimit, (long) (softLimit * scale));
+    }
+
+    /**
+     * Meldes efter hver færdig iteration med dens bedste træk. Ældre skift vejer halvt så meget pr. iteration.
+     */
+    public void iterationComplete(int bestMove) {
+        bestMoveChanges /= 2;
+        if (lastBestMove != 0 && bestMove != lastBestMove) bestMoveChanges += 1;
+        lastBestMove = bestMove;
+    }
+
+    /**
+     * Læser uret og sætter stopflaget, hvis den hårde grænse er nået.
+     */
+    public boolean hardLimitReached() {
+        if (!stopped && !pondering && elapsedMillis() >= hardLimit) stop();
+        return stopped;
+    }
+
+    /**
+     * Stopper søgningen udefra, fx fra en GUI- eller protokoltråd.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Venter til søgningen stoppes, eller kun til pondering slutter. Bruges når en uendelig søgning
+     * eller pondering er færdig før tid: UCI må ikke sende bestmove før GUI'en har sagt stop eller ponderhit.
+     */
+    public synchronized void awaitStop(boolean untilStopped) throws InterruptedException {
+        while (!stopped && (untilStopped || pondering)) wait();
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeManager[soft=" + softLimit + "ms, hard=" + hardLimit + "ms, elapsed=" + elapsedMillis() + "ms]";
+    }
+}
@@ -0,0 +1,210 @@
+package com.example;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transpositionstabel med fast størrelse, bygget på et primitivt long[].
+ *
+ * Hver indgang er to longs: (nøgle XOR data) og data. En læsning er kun gyldig,
+ * hvis de to ord passer sammen igen, så en halvt overskrevet indgang fra en anden tråd
+ * bliver afvist i stedet for at give en forkert score. Tabellen kan derfor deles
+ * mellem flere søgetråde uden låse.
+ *
+ * Indgangene ligger i spande af to: den første erstattes kun af en dybere søgning
+ * (eller en indgang fra en tidligere søgning), den anden erstattes altid.
+ *
+ * Data-ordet er pakket som:
+ * <pre>
+ *  bit  0-23  bedste træk (Move.encoded())
+ *  bit 24-47  score (med fortegn)
+ *  bit 48-55  dybde
+ *  bit 56-57  bound-type
+ *  bit 58-63  generation (alder)
+ * </pre>
+ *
+ * Statistik over opslag, træffere, gemninger og kollisioner tælles kun med -Dchess.ttStats=true:
+ * tællerne deles af alle søgetråde og ligger på de varmeste stier.
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2; // score >= gemt værdi (fail-high)
+    public static final int UPPER_BOUND = 3; // score <= gemt værdi (fail-low)
+
+    private static final int MAX_SCORE = (1 << 23) - 1;
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_LONGS = 2 * ENTRY_LONGS;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int generation = 0;
+
+    /**
+     * Slår statistiktællerne til (-Dchess.ttStats=true). Final, så JIT'en fjerner tællingen når den er slået fra.
+     */
+    static final boolean STATS = Boolean.getBoolean("chess.ttStats");
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * @param megabytes Tabellens størrelse i MB (rundes ned til en potens af 2 antal spande)
+     */
+    public TranspositionTable(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (BUCKET_LONGS * Long.BYTES));
+        table = new long[(int) (buckets * BUCKET_LONGS)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Kaldes ved starten af hver ny søgning, så gamle indgange kan erstattes først.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 63;
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length; i++) LONGS.setOpaque(table, i, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        collisions.reset();
+    }
+
+    private int bucketIndex(long key) {
+        return (int) (key & bucketMask) * BUCKET_LONGS;
+    }
+
+    /**
+     * Slår en stilling op.
+     *
+     * @return Det pakkede data-ord, eller 0 hvis stillingen ikke findes
+     */
+    public long probe(long key) {
+        if (STATS) probes.increment();
+        int index = bucketIndex(key);
+        for (int slot = index; slot < index + BUCKET_LONGS; slot += ENTRY_LONGS) {
+            long data = (long) LONGS.getOpaque(table, slot + 1);
+            long check = (long) LONGS.getOpaque(table, slot);
+            if (data != 0 && (check ^ data) == key) {
+                if (STATS) hits.increment();
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    public void store(long key, int depth, int bound, int score, int move) {
+        int index = bucketIndex(key);
+
+        long data0 = (long) LONGS.getOpaque(table, index + 1);
+        long key0 = (long) LONGS.getOpaque(table, index) ^ data0;
+
+        int slot;
+        long previous;
+        if (data0 == 0 || key0 == key || depth >= depth(data0) || age(data0) != generation) {
+            slot = index;            // dybdeforetrukken plads
+            previous = data0;
+            if (STATS && data0 != 0 && key0 != key) collisions.increment();
+        } else {
+            slot = index + ENTRY_LONGS; // erstattes altid
+            previous = (long) LONGS.getOpaque(table, slot + 1);
+            long previousKey = (long) LONGS.getOpaque(table, slot) ^ previous;
+            if (STATS && previous != 0 && previousKey != key) collisions.increment();
+            if (previousKey != key) previous = 0;
+        }
+
+        // Behold det gamle bedste træk, hvis den nye søgning ikke fandt et
+        if (move == 0 && previous != 0) move = move(previous);
+
+        long data = pack(move, score, depth, bound, generation);
+        LONGS.setOpaque(table, slot, key ^ data);
+        LONGS.setOpaque(table, slot + 1, data);
+        if (STATS) stores.increment();
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int age) {
+        score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+        depth = Math.max(0, Math.min(255, depth));
+        return (move & 0xFFFFFFL)
+                | ((score & 0xFFFFFFL) << 24)
+                | ((long) depth << 48)
+                | ((long) bound << 56)
+                | ((long) age << 58);
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFFF);
+    }
+
+    public static int score(long data) {
+        return (int) (data << 16 >> 40); // fortegnsudvidelse af bit 24-47
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 56) & 0x3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 58) & 0x3F;
+    }
+
+    /**
+     * Statistikken nedenfor tælles kun med -Dchess.ttStats=true; ellers er den 0.
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    public int getSizeInMegabytes() {
+        return (int) ((long) table.length * Long.BYTES / (1024 * 1024));
+    }
+
+    /**
+     * Promille af de første 1000 spande der er brugt i den aktuelle generation (som UCI's "hashfull").
+     */
+    public int hashfull() {
+        int used = 0;
+        int buckets = (int) Math.min(1000, bucketMask + 1);
+        for (int b = 0; b < buckets; b++) {
+            for (int e = 0; e < BUCKET_LONGS; e += ENTRY_LONGS) {
+                long data = (long) LONGS.getOpaque(table, b * BUCKET_LONGS + e + 1);
+                if (data != 0 && age(data) == generation) used++;
+            }
+        }
+        return used * 1000 / (buckets * 2);
+    }
+
+    // Uden -Dchess.ttStats er tællerne altid 0, så kun størrelse og fyldning vises
+    @Override
+    public String toString() {
+        if (!STATS) return String.format("TT %d MB: hashfull=%d‰", getSizeInMegabytes(), hashfull());
+        long p = getProbes();
+        return String.format("TT %d MB: probes=%d hits=%d (%.1f%%) stores=%d collisions=%d hashfull=%d‰",
+                getSizeInMegabytes(), p, getHits(), p == 0 ? 0.0 : 100.0 * getHits() / p,
+                getStores(), getCollisions(), hashfull());
+    }
+}
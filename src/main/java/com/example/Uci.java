@@ -0,0 +1,251 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * UCI-front end, så motoren kan køres uden GUI: fra turneringsprogrammer, på servere og i automatiske tests.
+ * Læser kommandoer på stdin og svarer på stdout. Søgningen kører gennem {@link Engine} på dens søgetråd,
+ * så stop, isready og ponderhit besvares med det samme, også midt i en søgning.
+ *
+ * Klassen rører hverken {@link Game}, {@link AI} eller Swing, så den starter uden AWT.
+ *
+ * Kørsel: java com.example.Uci   (eller java com.example.Main uci)
+ */
+public class Uci {
+
+    private static final String NAME = "chessEngine";
+    private static final int DEFAULT_HASH = 64;
+    private static final int MAX_HASH = 4096;
+    private static final int MAX_THREADS = 256;
+
+    private final PrintStream out;
+    private Position position = new Position(Position.START_FEN);
+    private Engine engine = new Engine(DEFAULT_HASH, 1, 1);
+
+    private CompletableFuture<Void> current;
+
+    public Uci(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        new Uci(System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+    }
+
+    /**
+     * Kommandoløkken; returnerer ved quit eller når input slutter.
+     */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            try {
+                if (!handle(line.trim())) break;
+            } catch (RuntimeException e) {
+                // En forkert kommando må ikke lukke motoren midt i et parti
+                send("info string Error in '" + line.trim() + "': " + e.getMessage());
+            }
+        }
+        stopSearch();
+        engine.close();
+    }
+
+    /**
+     * @return false når motoren skal lukke
+     */
+    boolean handle(String line) {
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "uci" -> {
+                send("id name " + NAME);
+                send("id author jala0001");
+                send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("uciok");
+            }
+            case "isready" -> send("readyok");
+            case "ucinewgame" -> {
+                stopSearch();
+                engine.clear();
+            }
+            case "setoption" -> {
+                stopSearch();
+                setOption(tokens);
+            }
+            case "position" -> {
+                stopSearch();
+                setPosition(tokens);
+            }
+            case "go" -> {
+                stopSearch();
+                go(tokens);
+            }
+            case "stop" -> stopSearch();
+            case "ponderhit" -> {
+                engine.ponderHit();
+            }
+            case "quit" -> {
+                return false;
+            }
+            default -> {
+                // Ukendte kommandoer ignoreres, som protokollen foreskriver
+            }
+        }
+        return true;
+    }
+
+    // setoption name <navn> value <værdi>
+    private void setOption(String[] tokens) {
+        String name = null;
+        String value = null;
+        for (int i = 1; i < tokens.length - 1; i++) {
+            if (tokens[i].equals("name")) name = tokens[i + 1];
+            if (tokens[i].equals("value")) value = tokens[i + 1];
+        }
+        if (name == null || value == null) return;
+
+        // Begge dele kræver en ny motor; tabellen starter så tom
+        try {
+            int hash = engine.getHashSizeInMegabytes();
+            int threads = engine.getThreads();
+            if (name.equalsIgnoreCase("Hash")) {
+                hash = Math.clamp(Integer.parseInt(value), 1, MAX_HASH);
+            } else if (name.equalsIgnoreCase("Threads")) {
+                threads = Math.clamp(Integer.parseInt(value), 1, MAX_THREADS);
+            }
+            if (hash != engine.getHashSizeInMegabytes() || threads != engine.getThreads()) {
+                engine.close();
+                engine = new Engine(hash, threads, 1);
+            }
+        } catch (NumberFormatException e) {
+            send("info string Invalid value for " + name + ": " + value);
+        }
+    }
+
+    // position startpos|fen <fen> [moves <træk>...]
+    private void setPosition(String[] tokens) {
+        int i = 1;
+        String fen;
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            fen = Position.START_FEN;
+            i = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+            StringBuilder builder = new StringBuilder();
+            for (i = 2; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                builder.append(tokens[i]).append(' ');
+            }
+            fen = builder.toString().trim();
+        } else {
+            return;
+        }
+
+        Position pos = new Position(fen);
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            for (i++; i < tokens.length; i++) {
+                int move = parseMove(pos, tokens[i]);
+                if (move == 0) {
+                    send("info string Illegal move: " + tokens[i]);
+                    break;
+                }
+                pos.makeMove(move);
+            }
+        }
+        position = pos;
+    }
+
+    // Trækket findes blandt de lovlige træk, så rokade, en passant og forvandling får de rigtige flag
+    private static int parseMove(Position pos, String uci) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = pos.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.toUci(moves[i]).equals(uci)) return moves[i];
+        }
+        return 0;
+    }
+
+    // go [wtime/btime/winc/binc/movestogo/movetime/depth/nodes/infinite/ponder]
+    private void go(String[] tokens) {
+        long wtime = -1, btime = -1, winc = 0, binc = 0, moveTime = -1;
+        int movesToGo = 0;
+        int depth = 0;
+        long nodes = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+
+        for (int i = 1; i < tokens.length; i++) {
+            String value = i + 1 < tokens.length ? tokens[i + 1] : "0";
+            switch (tokens[i]) {
+                case "wtime" -> wtime = Long.parseLong(value);
+                case "btime" -> btime = Long.parseLong(value);
+                case "winc" -> winc = Long.parseLong(value);
+                case "binc" -> binc = Long.parseLong(value);
+                case "movestogo" -> movesToGo = Integer.parseInt(value);
+                case "movetime" -> moveTime = Long.parseLong(value);
+                case "depth" -> depth = Integer.parseInt(value);
+                case "nodes" -> nodes = Long.parseLong(value);
+                case "infinite" -> infinite = true;
+                case "ponder" -> ponder = true;
+                default -> {
+                    // værdier og ukendte nøgleord springes over
+                }
+            }
+        }
+
+        SearchLimits limits;
+        if (infinite) {
+            limits = SearchLimits.infinite();
+        } else if (moveTime >= 0) {
+            limits = SearchLimits.moveTime(moveTime);
+        } else if (wtime >= 0 || btime >= 0) {
+            limits = SearchLimits.clock(wtime, btime, winc, binc, movesToGo);
+        } else {
+            limits = SearchLimits.none();
+        }
+        if (depth > 0) limits = limits.withDepth(depth);
+        if (nodes > 0) limits = limits.withNodes(nodes);
+        if (ponder) limits = limits.withPonder(true);
+
+        current = engine.search(position, limits, this::sendInfo).thenAccept(this::sendBestMove);
+    }
+
+    private void sendBestMove(SearchResult result) {
+        send("bestmove " + (result.bestMove == null ? "0000" : Move.toUci(result.bestMove.encoded()))
+                + (result.ponderMove == null ? "" : " ponder " + Move.toUci(result.ponderMove.encoded())));
+    }
+
+    // Scoren er set fra siden i trækket; mat angives i hele træk, negativ når motoren bliver sat mat
+    private void sendInfo(SearchResult progress) {
+        StringBuilder line = new StringBuilder("info depth ").append(progress.depth)
+                .append(" score ").append(progress.isMate() ? "mate " + progress.mateIn() : "cp " + progress.score)
+                .append(" nodes ").append(progress.nodes)
+                .append(" nps ").append(progress.nodesPerSecond())
+                .append(" time ").append(progress.timeMillis)
+                .append(" hashfull ").append(engine.hashfull())
+                .append(" pv");
+        for (Move move : progress.principalVariation) line.append(' ').append(Move.toUci(move.encoded()));
+        send(line.toString());
+    }
+
+    // Stopper en igangværende søgning og venter på dens bestmove
+    private void stopSearch() {
+        if (current == null) return;
+        engine.stop();
+        try {
+            current.join();
+        } catch (CompletionException e) {
+            send("info string Search failed: " + e.getCause());
+        }
+        current = null;
+    }
+
+    // Søgetråden og kommandotråden skriver begge; hver linje skrives samlet
+    private synchronized void send(String line) {
+        out.println(line);
+        out.flush();
+    }
+}
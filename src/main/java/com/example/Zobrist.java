@@ -0,0 +1,53 @@
+package com.example;
+
+import java.util.Random;
+
+/**
+ * Zobrist-nøgler til 64-bit hashing af en stilling.
+ * Nøglen dækker brikker, hvem der er i trækket, rokaderettigheder og en passant-linjen,
+ * og er grundlaget for transpositionstabel, gentagelsestjek og analyse-caches.
+ */
+public class Zobrist {
+
+    // Indekseret som (brik + 6) * 128 + felt, så både hvide (+) og sorte (-) brikker passer ind
+    private static final long[] pieceSquare = new long[13 * 128];
+    private static final long[] castling = new long[16];
+    private static final long[] enPassantFile = new long[8];
+    static final long sideToMove;
+
+    static {
+        // Fast seed, så nøglerne er ens fra kørsel til kørsel (vigtigt for fejlsøgning)
+        Random random = new Random(0x5EED_C0FFEEL);
+        for (int i = 0; i < pieceSquare.length; i++) pieceSquare[i] = random.nextLong();
+        for (int i = 0; i < castling.length; i++) castling[i] = random.nextLong();
+        for (int i = 0; i < enPassantFile.length; i++) enPassantFile[i] = random.nextLong();
+        sideToMove = random.nextLong();
+    }
+
+    static long piece(int piece, int square) {
+        return pieceSquare[(piece + 6) * 128 + square];
+    }
+
+    static long castling(int rights) {
+        return castling[rights];
+    }
+
+    static long enPassant(int square) {
+        return square == -1 ? 0L : enPassantFile[square & 7];
+    }
+
+    /**
+     * Beregner nøglen helt forfra. Bruges af loadFEN og til at kontrollere den inkrementelle nøgle.
+     */
+    public static long compute(Position pos) {
+        long key = 0L;
+        for (int sq = 0; sq < 128; sq++) {
+            if ((sq & 0x88) != 0 || pos.board[sq] == 0) continue;
+            key ^= piece(pos.board[sq], sq);
+        }
+        key ^= castling(pos.castlingRights);
+        key ^= enPassant(pos.enPassantSquare);
+        if (!pos.isWhiteTurn) key ^= sideToMove;
+        return key;
+    }
+}
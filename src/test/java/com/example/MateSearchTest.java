@@ -0,0 +1,62 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Mat findes af søgningen alene, efter at mat-genkendelsen er flyttet ud af evalueringen: kendte mat i 1, 2 og 3
+ * skal give det eneste vindende træk og den rigtige afstand på fast dybde, og en rod uden lovlige træk skal
+ * give mat eller pat uden at søge.
+ */
+public class MateSearchTest {
+
+    private static final int DEPTH = 6;
+
+    // FEN, det eneste træk der sætter mat hurtigst, og antal hele træk til mat
+    private static final Object[][] MATES = {
+            {"6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1", "d1d8", 1},
+            {"3r2k1/5ppp/8/8/8/8/5PPP/6K1 b - - 0 1", "d8d1", 1},
+            {"kbK5/pp6/1P6/8/8/8/8/R7 w - - 0 1", "a1a6", 2},
+            {"r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1", "d5f6", 2},
+            {"r5rk/5p1p/5R2/4B3/8/8/7P/7K w - - 0 1", "f6a6", 3},
+            {"2r3k1/p4p2/3Rp2p/1p2P1pK/8/1P4P1/P3Q2P/1q6 b - - 0 1", "b1g6", 3},
+    };
+
+    @Test
+    public void findsMatesAtFixedDepth() {
+        for (Object[] test : MATES) {
+            String fen = (String) test[0];
+            SearchResult result = search(fen);
+            assertTrue(fen, result.isMate());
+            assertEquals(fen, test[1], Move.toUci(result.bestMove.encoded()));
+            assertEquals(fen, test[2], result.mateIn());
+        }
+    }
+
+    @Test
+    public void checkmatedRootHasNoMove() {
+        // Narremat: hvid er sat mat
+        SearchResult result = search("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertNull(result.bestMove);
+        assertEquals(-Search.MATE_SCORE, result.score);
+        assertTrue(result.isMate());
+        assertEquals(0, result.mateIn());
+    }
+
+    @Test
+    public void stalemateRootScoresZero() {
+        SearchResult result = search("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertNull(result.bestMove);
+        assertEquals(0, result.score);
+        assertFalse(result.isMate());
+    }
+
+    private static SearchResult search(String fen) {
+        return Engine.iterativeDeepening(new Position(fen), SearchLimits.depth(DEPTH), TimeManager.infinite(),
+                new TranspositionTable(16), 1, null);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Perft på lave dybder for de kendte stillinger, på begge backends, så {@code mvn test} fanger fejl i
+ * trækgeneratoren og make/undo. De dybe tal i {@link Perft}-suiten køres med {@code mvn -Pperft verify}.
+ */
+public class PerftTest {
+
+    // FEN og forventet antal noder på dybde 1, 2 og 3 (fra chessprogramming.org)
+    private static final Object[][] SHALLOW = {
+            {Position.START_FEN, new long[] {20, 400, 8_902}},
+            {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", new long[] {48, 2_039, 97_862}},
+            {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", new long[] {14, 191, 2_812}},
+            {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", new long[] {6, 264, 9_467}},
+            {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", new long[] {44, 1_486, 62_379}},
+            {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", new long[] {46, 2_079, 89_890}},
+            {"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", new long[] {24, 496, 9_483}},
+    };
+
+    private final boolean previousBackend = Position.bitboardBackend;
+
+    @After
+    public void restoreBackend() {
+        Position.bitboardBackend = previousBackend;
+    }
+
+    @Test
+    public void shallowDepthsOn0x88() {
+        Position.bitboardBackend = false;
+        checkShallow();
+    }
+
+    @Test
+    public void shallowDepthsOnBitboards() {
+        Position.bitboardBackend = true;
+        checkShallow();
+    }
+
+    // Deltræ-cachen og fork-join skal give præcis samme tal
+    @Test
+    public void hashAndParallelAgree() {
+        Perft perft = new Perft(16);
+        for (Object[] test : SHALLOW) {
+            long[] expected = (long[]) test[1];
+            Position pos = new Position((String) test[0]);
+            assertEquals((String) test[0], expected[2], perft.count(pos, 3, true));
+        }
+    }
+
+    private static void checkShallow() {
+        for (Object[] test : SHALLOW) {
+            String fen = (String) test[0];
+            long[] expected = (long[]) test[1];
+            Position pos = new Position(fen);
+            for (int depth = 1; depth <= expected.length; depth++) {
+                assertEquals(fen + " dybde " + depth, expected[depth - 1], Perft.perft(pos, depth));
+            }
+            // make/undo skal efterlade stillingen uændret
+            assertEquals(fen, new Position(fen).zobristKey, pos.zobristKey);
+        }
+    }
+}
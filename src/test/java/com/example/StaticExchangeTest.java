@@ -0,0 +1,64 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Kendte udvekslinger for {@link StaticExchange}: trækordningen bruger {@link StaticExchange#see} og
+ * quiescence {@link StaticExchange#seeGreaterOrEqual}, så de to skal give samme svar for alle tærskler.
+ */
+public class StaticExchangeTest {
+
+    // FEN, træk og forventet SEE for siden der flytter
+    private static final Object[][] EXCHANGES = {
+            {"4k3/8/8/3n4/4P3/8/8/4K3 w - - 0 1", "e4d5", 320},         // uforsvaret springer
+            {"4k3/8/2p5/3p4/8/4N3/8/4K3 w - - 0 1", "e3d5", -220},      // springer for forsvaret bonde
+            {"4k3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2d5", 100},      // tårnet bag slår igen (x-ray)
+            {"4k3/8/5p2/4p3/3Q4/2B5/8/4K3 w - - 0 1", "d4e5", -700},    // løberen bag dronningen redder den ikke
+            {"4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", 100},         // en passant
+            {"4k3/2p5/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", 0},         // en passant, slås igen
+            {"3rk3/8/8/8/8/8/3P4/4K3 b - - 0 1", "d8d2", -400},         // kongen slår igen
+            {"3rk3/3r4/8/8/8/8/3P4/4K3 b - - 0 1", "d7d2", 100},        // kongen kan ikke slå et forsvaret tårn
+            {"4k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8q", 800},          // forvandling
+            {"2k5/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8q", -100},         // forvandling, kongen slår dronningen
+            {"rr2k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7a8q", 400},        // slag med forvandling, slås igen
+    };
+
+    @Test
+    public void seeMatchesKnownExchanges() {
+        for (Object[] test : EXCHANGES) {
+            Position pos = new Position((String) test[0]);
+            assertEquals(test[0] + " " + test[1], test[2], StaticExchange.see(pos, move(pos, (String) test[1])));
+        }
+    }
+
+    @Test
+    public void thresholdAgreesWithSee() {
+        for (Object[] test : EXCHANGES) {
+            Position pos = new Position((String) test[0]);
+            int move = move(pos, (String) test[1]);
+            int see = StaticExchange.see(pos, move);
+            for (int threshold = -1000; threshold <= 1000; threshold += 10) {
+                assertEquals(test[0] + " " + test[1] + " tærskel " + threshold,
+                        see >= threshold, StaticExchange.seeGreaterOrEqual(pos, move, threshold));
+            }
+            // Lige omkring værdien, hvor en fejl med en enkelt centibonde viser sig
+            for (int threshold = see - 1; threshold <= see + 1; threshold++) {
+                assertEquals(test[0] + " " + test[1] + " tærskel " + threshold,
+                        see >= threshold, StaticExchange.seeGreaterOrEqual(pos, move, threshold));
+            }
+        }
+    }
+
+    private static int move(Position pos, String uci) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = pos.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.toUci(moves[i]).equals(uci)) return moves[i];
+        }
+        fail(uci + " is not legal");
+        return 0;
+    }
+}